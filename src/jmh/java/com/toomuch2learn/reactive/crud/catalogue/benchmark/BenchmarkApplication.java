@@ -0,0 +1,44 @@
+package com.toomuch2learn.reactive.crud.catalogue.benchmark;
+
+import com.toomuch2learn.reactive.crud.catalogue.SpringReactiveCrudCatalogueApplication;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+
+/**
+ * Starts the application for benchmarks against its own in-memory database, on a random port and with logging kept to
+ * warnings so it does not distort the measurements.
+ *
+ * @author Madan Narra
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(SpringReactiveCrudCatalogueApplication.class)
+            .properties(
+                "spring.r2dbc.url=r2dbc:h2:mem:///benchmarkdb-" + UUID.randomUUID(),
+                "spring.devtools.restart.enabled=false",
+                "spring.main.banner-mode=off",
+                "server.port=0",
+                "file.upload-location=target/benchmark-uploads",
+                "logging.level.root=WARN",
+                "logging.level.com.toomuch2learn=WARN")
+            .run();
+    }
+
+    static CatalogueItem catalogueItem(String sku) {
+        CatalogueItem item = new CatalogueItem();
+        item.setSku(sku);
+        item.setName("Item Name");
+        item.setDescription("Item Desc");
+        item.setCategory("Books");
+        item.setInventory(10);
+        item.setPrice(100.0);
+        return item;
+    }
+}
@@ -0,0 +1,80 @@
+package com.toomuch2learn.reactive.crud.catalogue.benchmark;
+
+import com.toomuch2learn.reactive.crud.catalogue.exception.PreconditionFailedException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.ResourceNotFoundException;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueCrudService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmark of CatalogueCrudService get, add and update against the in-memory H2 database, each operation awaited
+ * before the next one. Items are read and updated at random from the seeded items, so reads are mostly served by the
+ * SKU cache as they are in production.
+ *
+ * @author Madan Narra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogueCrudServiceBenchmark {
+
+    private static final int SEEDED_ITEMS = 1000;
+
+    private final AtomicLong skuSequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private CatalogueCrudService catalogueCrudService;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start();
+        catalogueCrudService = context.getBean(CatalogueCrudService.class);
+
+        Flux.range(0, SEEDED_ITEMS)
+            .concatMap(i -> catalogueCrudService.addCatalogItem(BenchmarkApplication.catalogueItem(seededSku(i))))
+            .blockLast();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CatalogueItem getCatalogueItem() throws ResourceNotFoundException {
+        return catalogueCrudService.getCatalogueItem(randomSeededSku()).block();
+    }
+
+    @Benchmark
+    public Long addCatalogueItem() {
+        return catalogueCrudService
+            .addCatalogItem(BenchmarkApplication.catalogueItem("BENCH-NEW-" + skuSequence.incrementAndGet()))
+            .block();
+    }
+
+    @Benchmark
+    public void updateCatalogueItem() throws ResourceNotFoundException, PreconditionFailedException {
+        String sku = randomSeededSku();
+        CatalogueItem item = BenchmarkApplication.catalogueItem(sku);
+        item.setPrice(ThreadLocalRandom.current().nextDouble(1, 1000));
+
+        catalogueCrudService.updateCatalogueItem(sku, item, null).block();
+    }
+
+    private String randomSeededSku() {
+        return seededSku(ThreadLocalRandom.current().nextInt(SEEDED_ITEMS));
+    }
+
+    private static String seededSku(int i) {
+        return "BENCH-SKU-" + i;
+    }
+}
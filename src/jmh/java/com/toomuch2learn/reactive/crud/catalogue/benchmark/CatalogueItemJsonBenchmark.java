@@ -0,0 +1,55 @@
+package com.toomuch2learn.reactive.crud.catalogue.benchmark;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of CatalogueItem JSON serialization and deserialization, with the mapper configured as the application
+ * configures it through spring.jackson properties.
+ *
+ * @author Madan Narra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogueItemJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private CatalogueItem catalogueItem;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder
+            .json()
+            .featuresToEnable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS)
+            .build();
+
+        catalogueItem = BenchmarkApplication.catalogueItem("SKU-1234");
+        catalogueItem.setId(1L);
+        catalogueItem.setCreatedOn(Instant.now());
+        catalogueItem.setUpdatedOn(Instant.now());
+        catalogueItem.setVersion(1L);
+        json = objectMapper.writeValueAsBytes(catalogueItem);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(catalogueItem);
+    }
+
+    @Benchmark
+    public CatalogueItem deserialize() throws IOException {
+        return objectMapper.readValue(json, CatalogueItem.class);
+    }
+}
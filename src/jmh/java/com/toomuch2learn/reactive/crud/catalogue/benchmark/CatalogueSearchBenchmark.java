@@ -0,0 +1,45 @@
+package com.toomuch2learn.reactive.crud.catalogue.benchmark;
+
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueSearchResult;
+import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of searches answered by CatalogueSearchIndex over the seeded items, from a typeahead prefix matching every
+ * item to a query matching a single item.
+ *
+ * @author Madan Narra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogueSearchBenchmark {
+
+    @Param({"it", "item 04", "item 0421"})
+    private String query;
+
+    private ConfigurableApplicationContext context;
+    private CatalogueSearchIndex catalogueSearchIndex;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start();
+        catalogueSearchIndex = context.getBean(CatalogueSearchIndex.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CatalogueSearchResult search() {
+        return catalogueSearchIndex.search(query, null, null);
+    }
+}
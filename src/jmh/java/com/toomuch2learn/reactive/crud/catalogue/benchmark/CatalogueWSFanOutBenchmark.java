@@ -0,0 +1,112 @@
+package com.toomuch2learn.reactive.crud.catalogue.benchmark;
+
+import com.toomuch2learn.reactive.crud.catalogue.controller.CatalogueControllerAPIPaths;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEvent;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventOutbox;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueCrudService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.Disposable;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Benchmark of catalogue item event fan-out to websocket sessions of CatalogueWSController. Each operation appends an
+ * event to the outbox in its own transaction, as services do along with a change, and completes once every connected
+ * session has received its frame. It measures the outbox write and relay along with encoding, per session buffering
+ * and sending over loopback connections, and events carry outbox ids as sequence like any other.
+ *
+ * @author Madan Narra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogueWSFanOutBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int sessions;
+
+    private final AtomicReference<CountDownLatch> received = new AtomicReference<>(new CountDownLatch(0));
+    private final List<Disposable> connections = new ArrayList<>();
+
+    private ConfigurableApplicationContext context;
+    private CatalogueItemEventOutbox outbox;
+    private TransactionalOperator transactionalOperator;
+    private CatalogueItem catalogueItem;
+
+    @Setup
+    public void setup() throws Exception {
+        context = BenchmarkApplication.start();
+        outbox = context.getBean(CatalogueItemEventOutbox.class);
+        transactionalOperator = context.getBean(TransactionalOperator.class);
+
+        CatalogueCrudService catalogueCrudService = context.getBean(CatalogueCrudService.class);
+        catalogueCrudService.addCatalogItem(BenchmarkApplication.catalogueItem("BENCH-SKU-1")).block();
+        catalogueItem = catalogueCrudService.getCatalogueItem("BENCH-SKU-1").block();
+
+        MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+        double subscribers = subscribers(meterRegistry);
+
+        URI uri = URI.create(String.format(
+            "ws://localhost:%s%s",
+            context.getEnvironment().getProperty("local.server.port"),
+            CatalogueControllerAPIPaths.GET_ITEMS_WS_EVENTS));
+        ReactorNettyWebSocketClient client = new ReactorNettyWebSocketClient();
+        for (int i = 0; i < sessions; i++) {
+            connections.add(client
+                .execute(uri, session -> session
+                    .receive()
+                    .doOnNext(message -> received.get().countDown())
+                    .then())
+                .subscribe());
+        }
+
+        // Sessions are ready once each has subscribed to the event bus
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (subscribers(meterRegistry) < subscribers + sessions) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(String.format("%d websocket sessions not connected", sessions));
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        connections.forEach(Disposable::dispose);
+        context.close();
+    }
+
+    @Benchmark
+    public void fanOut() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(sessions);
+        received.set(latch);
+
+        outbox
+            .append(CatalogueItemEvent.CATALOGUEITEM_UPDATED, catalogueItem)
+            .as(transactionalOperator::transactional)
+            .block();
+        outbox.relayNow();
+
+        if (!latch.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException(String.format(
+                "Event not received by %d of %d websocket sessions", latch.getCount(), sessions));
+        }
+    }
+
+    private double subscribers(MeterRegistry meterRegistry) {
+        return meterRegistry.get("catalogue.events.subscribers").gauge().value();
+    }
+}
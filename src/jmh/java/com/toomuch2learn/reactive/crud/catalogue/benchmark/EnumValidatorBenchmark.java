@@ -0,0 +1,40 @@
+package com.toomuch2learn.reactive.crud.catalogue.benchmark;
+
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.validation.EnumValidator;
+import com.toomuch2learn.reactive.crud.catalogue.validation.IEnumValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of EnumValidator validating the category of a CatalogueItem, for a category matching in the same case, in
+ * a different case and not matching any category.
+ *
+ * @author Madan Narra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumValidatorBenchmark {
+
+    @Param({"BOOKS", "Books", "INVALID"})
+    private String category;
+
+    private EnumValidator enumValidator;
+
+    @Setup
+    public void setup() throws NoSuchFieldException {
+        enumValidator = new EnumValidator();
+        enumValidator.initialize(
+            CatalogueItem.class.getDeclaredField("category").getAnnotation(IEnumValidator.class));
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return enumValidator.isValid(category, null);
+    }
+}
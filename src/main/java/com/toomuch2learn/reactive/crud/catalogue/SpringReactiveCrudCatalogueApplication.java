@@ -1,13 +1,37 @@
 package com.toomuch2learn.reactive.crud.catalogue;
 
+import com.toomuch2learn.reactive.crud.catalogue.configuration.BulkProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.ConnectionPoolProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.DiagnosticsProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.EventBusProperties;
 import com.toomuch2learn.reactive.crud.catalogue.configuration.FileStorageProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.ImageRenditionProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.ImportProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.InstrumentationProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.OutboxProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.PaginationProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.SearchProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.SkuCacheProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.StreamProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
 @EnableConfigurationProperties({
-    FileStorageProperties.class
+    FileStorageProperties.class,
+    ImageRenditionProperties.class,
+    PaginationProperties.class,
+    BulkProperties.class,
+    ImportProperties.class,
+    SkuCacheProperties.class,
+    ConnectionPoolProperties.class,
+    EventBusProperties.class,
+    OutboxProperties.class,
+    StreamProperties.class,
+    InstrumentationProperties.class,
+    DiagnosticsProperties.class,
+    SearchProperties.class
 })
 public class SpringReactiveCrudCatalogueApplication {
 
@@ -1,12 +1,27 @@
 package com.toomuch2learn.reactive.crud.catalogue.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
 import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.web.codec.CodecCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.data.r2dbc.connectionfactory.init.CompositeDatabasePopulator;
+import org.springframework.core.annotation.Order;
 import org.springframework.data.r2dbc.connectionfactory.init.ConnectionFactoryInitializer;
-import org.springframework.data.r2dbc.connectionfactory.init.ResourceDatabasePopulator;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
 
 /**
  * Class to initialize any configurations or beans needed for application
@@ -16,12 +31,69 @@ import org.springframework.data.r2dbc.connectionfactory.init.ResourceDatabasePop
 @Configuration
 public class ApplicationConfiguration {
 
+    /**
+     * Pooled ConnectionFactory for the database configured with spring.r2dbc properties, including the driver options
+     * under spring.r2dbc.properties. Pool is sized and tuned with spring.r2dbc.pool properties, so repository calls
+     * reuse connections instead of creating one per call.
+     *
+     * Pool occupancy (r2dbc.pool.acquired, allocated, idle, pending) and acquire latency (r2dbc.pool.acquire) are
+     * published to the meter registry and available through the actuator metrics endpoint, along with the execution time
+     * of queries (r2dbc.query) and a log of slow queries configured with instrumentation properties.
+     *
+     * @param r2dbcProperties
+     * @param connectionPoolProperties
+     * @param instrumentationProperties
+     * @param meterRegistry
+     * @return connectionFactory
+     */
+    @Bean(destroyMethod = "dispose")
+    public MeteredConnectionFactory connectionFactory(
+        R2dbcProperties r2dbcProperties,
+        ConnectionPoolProperties connectionPoolProperties,
+        InstrumentationProperties instrumentationProperties,
+        MeterRegistry meterRegistry) {
+
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(r2dbcProperties.getUrl()).mutate();
+        if (StringUtils.hasText(r2dbcProperties.getUsername())) {
+            options.option(ConnectionFactoryOptions.USER, r2dbcProperties.getUsername());
+        }
+        if (StringUtils.hasText(r2dbcProperties.getPassword())) {
+            options.option(ConnectionFactoryOptions.PASSWORD, r2dbcProperties.getPassword());
+        }
+        r2dbcProperties.getProperties().forEach((key, value) -> options.option(Option.valueOf(key), value));
+
+        R2dbcProperties.Pool pool = r2dbcProperties.getPool();
+        ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration
+            .builder(ConnectionFactories.get(options.build()))
+            .name(connectionPoolProperties.getName())
+            .initialSize(pool.getInitialSize())
+            .maxSize(pool.getMaxSize())
+            .maxIdleTime(pool.getMaxIdleTime())
+            .maxAcquireTime(connectionPoolProperties.getMaxAcquireTime())
+            .maxCreateConnectionTime(connectionPoolProperties.getMaxCreateConnectionTime());
+        if (StringUtils.hasText(pool.getValidationQuery())) {
+            configuration.validationQuery(pool.getValidationQuery());
+        }
+        ConnectionPool connectionPool = new ConnectionPool(configuration.build());
+
+        new ConnectionPoolMetrics(connectionPool, connectionPoolProperties.getName(), Tags.empty()).bindTo(meterRegistry);
+
+        return new MeteredConnectionFactory(
+            connectionPool,
+            connectionPoolProperties.getName(),
+            meterRegistry,
+            new QueryMetricsListener(connectionPoolProperties.getName(), meterRegistry, instrumentationProperties));
+    }
+
     /**
      * When using R2DBC, there is no support in Spring Boot to for initialising a database using schema.sql or data.sql.
      *
      * Database cannot be initialized with schema or seed data by annotating the configuration class with
      * @EnableAutoConfiguration or by specifying initialization-mode config param.
      *
+     * Schema and seed data are applied as versioned migrations from schema/migration, so only migrations not yet
+     * applied to the database are run and existing data is retained across restarts.
+     *
      * @param connectionFactory
      * @return connectionFactoryInitializer
      */
@@ -31,12 +103,35 @@ public class ApplicationConfiguration {
         ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
         initializer.setConnectionFactory(connectionFactory);
 
-        CompositeDatabasePopulator populator = new CompositeDatabasePopulator();
-        populator.addPopulators(new ResourceDatabasePopulator(new ClassPathResource("schema/schema.sql")));
-        populator.addPopulators(new ResourceDatabasePopulator(new ClassPathResource("schema/data.sql")));
-        initializer.setDatabasePopulator(populator);
+        initializer.setDatabasePopulator(new SchemaMigrationPopulator("classpath:schema/migration/*.sql"));
 
         return initializer;
     }
 
+    /**
+     * Jackson codecs registered by Spring Boot do not handle application/x-ndjson. Register them again with NDJSON added
+     * to the supported and streaming media types, so bulk endpoints can consume and stream NDJSON.
+     *
+     * Ordered after Spring Boot jackson codec customizer so that these codecs take precedence.
+     *
+     * @param objectMapper
+     * @return codecCustomizer
+     */
+    @Bean
+    @Order(1)
+    public CodecCustomizer ndjsonCodecCustomizer(ObjectMapper objectMapper) {
+        MediaType[] mediaTypes = {
+            MediaType.APPLICATION_JSON,
+            new MediaType("application", "*+json"),
+            CatalogueMediaTypes.APPLICATION_NDJSON
+        };
+
+        return configurer -> {
+            Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper, mediaTypes);
+            encoder.setStreamingMediaTypes(Arrays.asList(MediaType.APPLICATION_STREAM_JSON, CatalogueMediaTypes.APPLICATION_NDJSON));
+
+            configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper, mediaTypes));
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+        };
+    }
 }
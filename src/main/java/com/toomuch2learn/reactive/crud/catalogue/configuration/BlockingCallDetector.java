@@ -0,0 +1,189 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import com.toomuch2learn.reactive.crud.catalogue.model.BlockingCall;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingMethod;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Detects blocking calls made on non-blocking threads, such as the Netty event loop and Reactor parallel workers,
+ * using BlockHound. Blocking calls are recorded rather than failed, so the application keeps serving while they are
+ * found. Calls are grouped by the blocking method and the application frames calling it, and counted as
+ * catalogue.diagnostics.blocking.calls tagged by the blocking method.
+ *
+ * BlockHound instruments the JVM once and cannot be removed, so it stays installed after the application context is
+ * closed and only reports to the detector of the running context. Threads already waiting inside code allowed to
+ * block when it is installed, such as idle scheduler workers, may not be checked. On JDK 13 and later the JVM has to
+ * be started with -XX:+AllowRedefinitionToAddDeleteMethods.
+ *
+ * BlockHound is an optional dependency, only packaged with the diagnostics build profile, so the detector is only
+ * created when it is on the classpath.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "diagnostics", name = "enabled", havingValue = "true")
+@ConditionalOnClass(name = "reactor.blockhound.BlockHound")
+public class BlockingCallDetector implements DisposableBean {
+
+    private static final String APPLICATION_PACKAGE = "com.toomuch2learn.";
+    private static final String BLOCKHOUND_PACKAGE = "reactor.blockhound.";
+
+    // Frames of the instrumentation itself, which would otherwise be reported as the caller of every blocking call
+    private static final List<String> INSTRUMENTATION_FRAMES = Arrays.asList(
+        BlockingCallDetector.class.getName() + ".",
+        PipelineProfiler.class.getName(),
+        OperationMetricsAspect.class.getName() + ".");
+
+    private static volatile BlockingCallDetector current;
+
+    private final DiagnosticsProperties diagnosticsProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, BlockingCall> blockingCalls = new ConcurrentHashMap<>();
+
+    // Recording may block itself, such as when logging, which is not reported again
+    private final ThreadLocal<Boolean> recording = ThreadLocal.withInitial(() -> false);
+
+    BlockingCallDetector(DiagnosticsProperties diagnosticsProperties, MeterRegistry meterRegistry) {
+        this.diagnosticsProperties = diagnosticsProperties;
+        this.meterRegistry = meterRegistry;
+
+        current = this;
+        BlockHound.install(builder -> {
+            diagnosticsProperties.getAllowedBlockingCalls().forEach(allowed -> {
+                String[] method = allowed.split("#", 2);
+                builder.allowBlockingCallsInside(method[0], method[1]);
+            });
+            builder.blockingMethodCallback(BlockingCallDetector::report);
+        });
+        log.info("Detecting blocking calls on non-blocking threads");
+    }
+
+    /**
+     * Get blocking calls detected, most frequent first
+     *
+     * @return blockingCalls
+     */
+    public List<BlockingCall> getBlockingCalls() {
+        return blockingCalls
+            .values()
+            .stream()
+            .map(this::copy)
+            .sorted(Comparator.comparingLong(BlockingCall::getCount).reversed())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Forget blocking calls detected so far
+     */
+    public void reset() {
+        blockingCalls.clear();
+    }
+
+    @Override
+    public void destroy() {
+        if (current == this) {
+            current = null;
+        }
+    }
+
+    private static void report(BlockingMethod method) {
+        BlockingCallDetector detector = current;
+        if (detector != null) {
+            detector.record(method);
+        }
+    }
+
+    private void record(BlockingMethod method) {
+        if (recording.get()) {
+            return;
+        }
+        recording.set(true);
+        try {
+            List<String> stackTrace = callers();
+            String key = method + " " + (stackTrace.isEmpty() ? "" : stackTrace.get(0));
+
+            Counter
+                .builder("catalogue.diagnostics.blocking.calls")
+                .description("Number of blocking calls made on non-blocking threads")
+                .tag("method", method.toString())
+                .register(meterRegistry)
+                .increment();
+
+            BlockingCall blockingCall = blockingCalls.get(key);
+            if (blockingCall == null) {
+                if (blockingCalls.size() >= diagnosticsProperties.getMaxBlockingCalls()) {
+                    return;
+                }
+                blockingCall = blockingCalls.computeIfAbsent(key, k -> {
+                    BlockingCall detected = new BlockingCall();
+                    detected.setMethod(method.toString());
+                    detected.setStackTrace(new ArrayList<>(stackTrace));
+                    detected.setFirstSeen(Instant.now());
+                    log.warn("Blocking call {} on non-blocking thread {} from {}",
+                        method, Thread.currentThread().getName(), stackTrace);
+                    return detected;
+                });
+            }
+
+            synchronized (blockingCall) {
+                blockingCall.setCount(blockingCall.getCount() + 1);
+                blockingCall.setLastThread(Thread.currentThread().getName());
+                blockingCall.setLastSeen(Instant.now());
+            }
+        }
+        finally {
+            recording.set(false);
+        }
+    }
+
+    /**
+     * Application frames calling the blocking method, or the frames on top of the stack for blocking calls made by
+     * libraries outside any application frame
+     */
+    private List<String> callers() {
+        List<String> frames = Arrays
+            .stream(new Throwable().getStackTrace())
+            .map(StackTraceElement::toString)
+            .filter(frame -> !frame.startsWith(BLOCKHOUND_PACKAGE))
+            .filter(frame -> INSTRUMENTATION_FRAMES.stream().noneMatch(frame::startsWith))
+            .collect(Collectors.toList());
+        List<String> callers = frames
+            .stream()
+            .filter(frame -> frame.startsWith(APPLICATION_PACKAGE) && !frame.contains("$$"))
+            .limit(diagnosticsProperties.getStackDepth())
+            .collect(Collectors.toList());
+        return callers.isEmpty()
+            ? frames.stream().limit(diagnosticsProperties.getStackDepth()).collect(Collectors.toList())
+            : callers;
+    }
+
+    private BlockingCall copy(BlockingCall blockingCall) {
+        BlockingCall copy = new BlockingCall();
+        synchronized (blockingCall) {
+            copy.setMethod(blockingCall.getMethod());
+            copy.setStackTrace(blockingCall.getStackTrace());
+            copy.setLastThread(blockingCall.getLastThread());
+            copy.setCount(blockingCall.getCount());
+            copy.setFirstSeen(blockingCall.getFirstSeen());
+            copy.setLastSeen(blockingCall.getLastSeen());
+        }
+        return copy;
+    }
+}
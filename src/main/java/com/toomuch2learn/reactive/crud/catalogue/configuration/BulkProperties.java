@@ -0,0 +1,14 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "bulk")
+public class BulkProperties {
+
+    /**
+     * Number of items written per batch statement and per transaction
+     */
+    private int chunkSize = 500;
+}
@@ -0,0 +1,18 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Class to hold media types which are not available as constants in {@link MediaType}
+ *
+ * @author Madan Narra
+ */
+public class CatalogueMediaTypes {
+
+    /**
+     * Newline delimited JSON, used to stream items to and from bulk endpoints
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+}
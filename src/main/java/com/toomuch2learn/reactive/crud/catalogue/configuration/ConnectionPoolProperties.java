@@ -0,0 +1,30 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the R2DBC connection pool not provided by Spring Boot, bound from spring.r2dbc.pool along with the pool
+ * settings Spring Boot provides, so the pool is configured in a single place
+ */
+@Data
+@ConfigurationProperties(prefix = "spring.r2dbc.pool")
+public class ConnectionPoolProperties {
+
+    /**
+     * Name of the pool, used to tag pool metrics
+     */
+    private String name = "catalogue";
+
+    /**
+     * Maximum duration to wait for a connection to be acquired from the pool before failing
+     */
+    private Duration maxAcquireTime = Duration.ofSeconds(5);
+
+    /**
+     * Maximum duration to wait for a new connection to be created
+     */
+    private Duration maxCreateConnectionTime = Duration.ofSeconds(5);
+}
@@ -0,0 +1,56 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint reporting blocking calls detected on non-blocking threads and the time taken by operators of
+ * profiled catalogue service pipelines. Findings are cleared with a DELETE request, such as before a load run.
+ * Blocking calls are only detected when BlockHound is packaged, and reported as none otherwise.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Component
+@Endpoint(id = "diagnostics")
+@ConditionalOnProperty(prefix = "diagnostics", name = "enabled", havingValue = "true")
+public class DiagnosticsEndpoint {
+
+    private final BlockingCallDetector blockingCallDetector;
+    private final PipelineProfiler pipelineProfiler;
+
+    DiagnosticsEndpoint(ObjectProvider<BlockingCallDetector> blockingCallDetector, PipelineProfiler pipelineProfiler) {
+        this.blockingCallDetector = blockingCallDetector.getIfAvailable();
+        this.pipelineProfiler = pipelineProfiler;
+
+        if (this.blockingCallDetector == null) {
+            log.warn("BlockHound is not packaged, blocking calls are not detected. Build with the diagnostics profile");
+        }
+    }
+
+    @ReadOperation
+    public Map<String, Object> diagnostics() {
+        Map<String, Object> diagnostics = new LinkedHashMap<>();
+        diagnostics.put("blockingCalls",
+            blockingCallDetector == null ? Collections.emptyList() : blockingCallDetector.getBlockingCalls());
+        diagnostics.put("operators", pipelineProfiler.getOperatorTimings());
+        return diagnostics;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        if (blockingCallDetector != null) {
+            blockingCallDetector.reset();
+        }
+        pipelineProfiler.reset();
+    }
+}
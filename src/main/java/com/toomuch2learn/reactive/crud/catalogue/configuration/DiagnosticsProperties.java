@@ -0,0 +1,35 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "diagnostics")
+public class DiagnosticsProperties {
+
+    /**
+     * Whether blocking calls on non-blocking threads are detected and catalogue service pipelines are profiled. Meant
+     * for staging, as every operator of the profiled pipelines is instrumented.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of distinct blocking calls retained, further calls are only counted
+     */
+    private int maxBlockingCalls = 100;
+
+    /**
+     * Number of application stack frames retained for each blocking call
+     */
+    private int stackDepth = 10;
+
+    /**
+     * Methods allowed to block on non-blocking threads, as class#method
+     */
+    private List<String> allowedBlockingCalls = new ArrayList<>(Arrays.asList(
+        "ch.qos.logback.core.OutputStreamAppender#writeBytes"));
+}
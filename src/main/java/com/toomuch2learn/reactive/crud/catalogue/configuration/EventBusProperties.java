@@ -0,0 +1,32 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import com.toomuch2learn.reactive.crud.catalogue.event.SubscriberOverflowStrategy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "event-bus")
+public class EventBusProperties {
+
+    /**
+     * Maximum number of events buffered for each subscriber which is not keeping up
+     */
+    private int bufferSize = 256;
+
+    /**
+     * Strategy applied when a subscriber's buffer is full, unless the subscriber asks for a specific one
+     */
+    private SubscriberOverflowStrategy overflowStrategy = SubscriberOverflowStrategy.DROP_OLDEST;
+
+    /**
+     * Number of latest events retained for subscribers resuming from the last event they received
+     */
+    private int replaySize = 1024;
+
+    /**
+     * Window over which events are conflated for subscribers opting in to conflation
+     */
+    private Duration conflationWindow = Duration.ofSeconds(1);
+}
@@ -2,10 +2,40 @@ package com.toomuch2learn.reactive.crud.catalogue.configuration;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 
 @Data
 @ConfigurationProperties(prefix = "file")
 public class FileStorageProperties {
 
     private String uploadLocation;
+
+    /**
+     * Maximum size of an uploaded file, uploads are rejected as soon as they exceed it
+     */
+    private DataSize maxFileSize = DataSize.ofMegabytes(5);
+
+    /**
+     * Content types accepted for Catalogue Item images
+     */
+    private List<String> imageContentTypes = Arrays.asList("image/jpeg", "image/png", "image/gif", "image/webp");
+
+    /**
+     * Interval at which blobs no longer referenced by any image are deleted
+     */
+    private Duration gcInterval = Duration.ofMinutes(10);
+
+    /**
+     * Time since a blob was last stored before it can be deleted, covering uploads whose image is not yet saved
+     */
+    private Duration gcGracePeriod = Duration.ofHours(1);
+
+    /**
+     * Maximum number of blobs deleted per collection
+     */
+    private int gcBatchSize = 500;
 }
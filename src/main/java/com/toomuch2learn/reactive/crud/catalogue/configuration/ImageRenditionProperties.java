@@ -0,0 +1,40 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "image-renditions")
+public class ImageRenditionProperties {
+
+    /**
+     * Renditions produced for every image, by name, as the maximum width and height in pixels. Images smaller than a
+     * rendition are not enlarged.
+     */
+    private Map<String, Integer> sizes = new LinkedHashMap<>();
+
+    /**
+     * Maximum width times height of images renditions are produced for, checked before the image is decoded as a
+     * small file can decode to an image too large for memory
+     */
+    private long maxPixels = 25_000_000;
+
+    /**
+     * Number of worker threads producing renditions
+     */
+    private int concurrency = 2;
+
+    /**
+     * Maximum number of images queued for the workers, uploads beyond it have renditions produced on first request
+     */
+    private int queueSize = 1000;
+
+    /**
+     * Duration for which clients and proxies may cache renditions
+     */
+    private Duration cacheMaxAge = Duration.ofDays(7);
+}
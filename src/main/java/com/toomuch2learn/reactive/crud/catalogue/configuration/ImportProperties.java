@@ -0,0 +1,29 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "import")
+public class ImportProperties {
+
+    /**
+     * Number of lines written per batch insert and per transaction
+     */
+    private int chunkSize = 100;
+
+    /**
+     * Maximum number of chunks being written to the database at any point of time during an import
+     */
+    private int concurrency = 2;
+
+    /**
+     * Maximum size in bytes of a single NDJSON line
+     */
+    private int maxLineSize = 256 * 1024;
+
+    /**
+     * Maximum number of rejected lines reported back in the import summary
+     */
+    private int maxReportedErrors = 100;
+}
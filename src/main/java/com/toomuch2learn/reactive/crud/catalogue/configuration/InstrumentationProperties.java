@@ -0,0 +1,27 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "instrumentation")
+public class InstrumentationProperties {
+
+    /**
+     * Queries taking at least this long to execute are logged as slow queries, 0 to disable the slow query log
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(200);
+
+    /**
+     * Whether slow queries are logged along with their bound parameters. Parameters may hold personal data, so they
+     * are left out of the log unless enabled
+     */
+    private boolean logQueryBindings = false;
+
+    /**
+     * Interval at which the number of catalogue items by category is counted for the catalogue.items gauge
+     */
+    private Duration catalogueSizeRefreshInterval = Duration.ofSeconds(30);
+}
@@ -0,0 +1,73 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import io.r2dbc.proxy.listener.ProxyExecutionListener;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import reactor.core.publisher.Mono;
+
+/**
+ * ConnectionFactory wrapping the ConnectionPool to record the time taken to acquire a connection from the pool as
+ * r2dbc.pool.acquire timer, tagged by pool name and outcome. Acquired connections are proxied, so queries executed on
+ * them are reported to the listener.
+ *
+ * @author Madan Narra
+ */
+public class MeteredConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory> {
+
+    private final ConnectionPool connectionPool;
+    private final ConnectionFactory proxyConnectionFactory;
+    private final MeterRegistry meterRegistry;
+    private final Timer acquireSuccess;
+    private final Timer acquireFailure;
+
+    public MeteredConnectionFactory(
+        ConnectionPool connectionPool, String name, MeterRegistry meterRegistry, ProxyExecutionListener listener) {
+
+        this.connectionPool = connectionPool;
+        this.proxyConnectionFactory = ProxyConnectionFactory.builder(connectionPool).listener(listener).build();
+        this.meterRegistry = meterRegistry;
+        this.acquireSuccess = acquireTimer(name, "success", meterRegistry);
+        this.acquireFailure = acquireTimer(name, "failure", meterRegistry);
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+
+            return Mono
+                .from(proxyConnectionFactory.create())
+                .doOnSuccess(connection -> sample.stop(acquireSuccess))
+                .doOnError(e -> sample.stop(acquireFailure));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return connectionPool.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return connectionPool;
+    }
+
+    public void dispose() {
+        connectionPool.dispose();
+    }
+
+    private static Timer acquireTimer(String name, String outcome, MeterRegistry meterRegistry) {
+        return Timer
+            .builder("r2dbc.pool.acquire")
+            .description("Time taken to acquire a connection from the pool")
+            .tags("name", name, "outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,143 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Aspect recording the latency of catalogue operations as catalogue.operations timer with percentile histograms,
+ * tagged by layer (controller, service or repository), operation, outcome and exception. Comparing the layers of a
+ * request tells time spent in the database from time spent waiting on the event loop or in the handler.
+ *
+ * Operations returning Mono or Flux are timed from subscription until they complete, fail or are cancelled, rather
+ * than the time taken to assemble them. Each subscription is recorded separately. Applied before any other advice,
+ * so the time recorded includes it. Operations annotated with {@link Untimed}, such as streams held open while the
+ * client is connected, are not timed.
+ *
+ * Timers are registered once per combination of tags and kept, so recording an operation does not look up the
+ * registry or allocate its histogram again.
+ *
+ * @author Madan Narra
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class OperationMetricsAspect {
+
+    private static final String METRIC_NAME = "catalogue.operations";
+
+    private static final String UNTIMED =
+        " && !@annotation(com.toomuch2learn.reactive.crud.catalogue.configuration.Untimed)";
+
+    private final MeterRegistry meterRegistry;
+
+    // Timers by layer, operation, outcome and exception
+    private final Map<List<String>, Timer> timers = new ConcurrentHashMap<>();
+
+    OperationMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("within(com.toomuch2learn.reactive.crud.catalogue.controller.CatalogueController)" + UNTIMED)
+    public Object timeController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "controller");
+    }
+
+    @Around("within(com.toomuch2learn.reactive.crud.catalogue.service.CatalogueCrudService)" + UNTIMED)
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "service");
+    }
+
+    @Around("(execution(* org.springframework.data.repository.Repository+.*(..))"
+        + " || within(com.toomuch2learn.reactive.crud.catalogue.repository..*))" + UNTIMED)
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "repository");
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String layer) throws Throwable {
+        String operation = operation(joinPoint);
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        }
+        catch (Throwable e) {
+            record(sample, layer, operation, SignalType.ON_ERROR, e);
+            throw e;
+        }
+
+        if (result instanceof Mono) {
+            Mono<?> mono = (Mono<?>) result;
+            return Mono.defer(() -> {
+                Timer.Sample subscription = Timer.start(meterRegistry);
+                AtomicReference<Throwable> error = new AtomicReference<>();
+                return mono
+                    .doOnError(error::set)
+                    .doFinally(signal -> record(subscription, layer, operation, signal, error.get()));
+            });
+        }
+        if (result instanceof Flux) {
+            Flux<?> flux = (Flux<?>) result;
+            return Flux.defer(() -> {
+                Timer.Sample subscription = Timer.start(meterRegistry);
+                AtomicReference<Throwable> error = new AtomicReference<>();
+                return flux
+                    .doOnError(error::set)
+                    .doFinally(signal -> record(subscription, layer, operation, signal, error.get()));
+            });
+        }
+
+        record(sample, layer, operation, SignalType.ON_COMPLETE, null);
+        return result;
+    }
+
+    private void record(Timer.Sample sample, String layer, String operation, SignalType signal, Throwable error) {
+        String outcome = signal == SignalType.ON_ERROR ? "error" : signal == SignalType.CANCEL ? "cancelled" : "success";
+
+        String exception = error == null ? "none" : error.getClass().getSimpleName();
+
+        sample.stop(timers.computeIfAbsent(
+            Arrays.asList(layer, operation, outcome, exception),
+            tags -> Timer
+                .builder(METRIC_NAME)
+                .description("Time taken by catalogue operations until their result completes")
+                .tags(
+                    "layer", layer,
+                    "operation", operation,
+                    "outcome", outcome,
+                    "exception", exception)
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+    }
+
+    /**
+     * Operation is named by the repository interface rather than the class implementing it, so repository operations
+     * read as CatalogueRepository.findBySku instead of the class of the generated repository
+     */
+    private String operation(ProceedingJoinPoint joinPoint) {
+        Class<?> type = joinPoint.getTarget().getClass();
+        for (Class<?> proxiedInterface : type.getInterfaces()) {
+            if (Repository.class.isAssignableFrom(proxiedInterface)) {
+                type = proxiedInterface;
+                break;
+            }
+        }
+        return type.getSimpleName() + "." + joinPoint.getSignature().getName();
+    }
+}
@@ -0,0 +1,42 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "outbox")
+public class OutboxProperties {
+
+    /**
+     * Interval at which the outbox is polled for events written by any instance
+     */
+    private Duration pollInterval = Duration.ofMillis(200);
+
+    /**
+     * Maximum number of events read from the outbox per query
+     */
+    private int batchSize = 500;
+
+    /**
+     * Time to wait for a missing event id to be committed before relaying later events. Events committed after it are
+     * still relayed, out of order, while retained.
+     */
+    private Duration gapTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Duration for which relayed events are retained for replay
+     */
+    private Duration retention = Duration.ofHours(1);
+
+    /**
+     * Interval at which events older than the retention are deleted
+     */
+    private Duration purgeInterval = Duration.ofMinutes(1);
+
+    /**
+     * Time to wait for the latest event id on startup before failing to start
+     */
+    private Duration startupTimeout = Duration.ofSeconds(30);
+}
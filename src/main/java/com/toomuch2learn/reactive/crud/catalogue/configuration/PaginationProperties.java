@@ -0,0 +1,19 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "pagination")
+public class PaginationProperties {
+
+    /**
+     * Number of items returned in a page when the client does not ask for a specific size
+     */
+    private int defaultSize = 20;
+
+    /**
+     * Upper bound on the page size a client can request
+     */
+    private int maxSize = 500;
+}
@@ -0,0 +1,239 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import com.toomuch2learn.reactive.crud.catalogue.model.OperatorTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.CoreSubscriber;
+import reactor.core.Fuseable;
+import reactor.core.Scannable;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Profiles the pipelines assembled by CatalogueCrudService operations. Every operator assembled while an operation is
+ * called is timed from subscription until it completes, fails or is cancelled, as catalogue.diagnostics.operator
+ * timer tagged by operation and operator, numbered in assembly order. Operators assembled later, such as within
+ * flatMap, are not profiled.
+ *
+ * As an operator's time includes the operators upstream of it, the increase between consecutive operators shows where
+ * a pipeline spends its time. Profiled operators are not fused.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Aspect
+@Component
+@ConditionalOnProperty(prefix = "diagnostics", name = "enabled", havingValue = "true")
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class PipelineProfiler implements DisposableBean {
+
+    private static final String HOOK_KEY = PipelineProfiler.class.getName();
+    private static final String METRIC_NAME = "catalogue.diagnostics.operator";
+
+    private final MeterRegistry meterRegistry;
+
+    // Operation being assembled on the current thread along with the number of operators assembled so far
+    private final ThreadLocal<Assembly> assembly = new ThreadLocal<>();
+
+    PipelineProfiler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        Hooks.onEachOperator(HOOK_KEY, publisher -> {
+            Assembly current = assembly.get();
+            if (current == null) {
+                return publisher;
+            }
+
+            Timer timer = Timer
+                .builder(METRIC_NAME)
+                .description("Time taken by operators of profiled pipelines from subscription until they terminate")
+                .tags(
+                    "operation", current.operation,
+                    "operator", String.format("%02d:%s", ++current.operators, Scannable.from(publisher).stepName()))
+                .register(meterRegistry);
+
+            return Operators.<Object, Object>lift((scannable, actual) -> new TimedSubscriber(actual, timer))
+                .apply(publisher);
+        });
+        log.info("Profiling catalogue service pipelines");
+    }
+
+    @Around("within(com.toomuch2learn.reactive.crud.catalogue.service.CatalogueCrudService)")
+    public Object profile(ProceedingJoinPoint joinPoint) throws Throwable {
+        Assembly previous = assembly.get();
+        assembly.set(new Assembly(
+            joinPoint.getTarget().getClass().getSimpleName() + "." + joinPoint.getSignature().getName()));
+        try {
+            return joinPoint.proceed();
+        }
+        finally {
+            if (previous == null) {
+                assembly.remove();
+            }
+            else {
+                assembly.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Get time taken by operators of profiled pipelines, in assembly order for every operation
+     *
+     * @return operatorTimings
+     */
+    public List<OperatorTiming> getOperatorTimings() {
+        return meterRegistry
+            .find(METRIC_NAME)
+            .timers()
+            .stream()
+            .map(timer -> new OperatorTiming(
+                timer.getId().getTag("operation"),
+                timer.getId().getTag("operator"),
+                timer.count(),
+                timer.mean(TimeUnit.MILLISECONDS),
+                timer.max(TimeUnit.MILLISECONDS),
+                timer.totalTime(TimeUnit.MILLISECONDS)))
+            .sorted(Comparator.comparing(OperatorTiming::getOperation).thenComparing(OperatorTiming::getOperator))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Forget operator timings recorded so far
+     */
+    public void reset() {
+        meterRegistry.find(METRIC_NAME).timers().forEach(meterRegistry::remove);
+    }
+
+    @Override
+    public void destroy() {
+        Hooks.resetOnEachOperator(HOOK_KEY);
+    }
+
+    private static class Assembly {
+
+        private final String operation;
+        private int operators;
+
+        Assembly(String operation) {
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * Passes signals through unchanged, recording the time from subscription until the first terminal signal. Rejects
+     * fusion requested by the downstream operator, so its terminal signals are always observed.
+     */
+    private static class TimedSubscriber
+        implements CoreSubscriber<Object>, Fuseable.QueueSubscription<Object>, Scannable {
+
+        private final CoreSubscriber<? super Object> actual;
+        private final Timer timer;
+        private final AtomicBoolean terminated = new AtomicBoolean();
+
+        private Subscription upstream;
+        private long start;
+
+        TimedSubscriber(CoreSubscriber<? super Object> actual, Timer timer) {
+            this.actual = actual;
+            this.timer = timer;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            upstream = subscription;
+            start = System.nanoTime();
+            actual.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(Object value) {
+            actual.onNext(value);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            stop();
+            actual.onError(error);
+        }
+
+        @Override
+        public void onComplete() {
+            stop();
+            actual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            stop();
+            upstream.cancel();
+        }
+
+        @Override
+        public int requestFusion(int requestedMode) {
+            return Fuseable.NONE;
+        }
+
+        @Override
+        public Object poll() {
+            return null;
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return true;
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        @Override
+        public Object scanUnsafe(Attr key) {
+            if (key == Attr.PARENT) {
+                return upstream;
+            }
+            if (key == Attr.ACTUAL) {
+                return actual;
+            }
+            return null;
+        }
+
+        private void stop() {
+            if (terminated.compareAndSet(false, true)) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.proxy.core.QueryExecutionInfo;
+import io.r2dbc.proxy.core.QueryInfo;
+import io.r2dbc.proxy.listener.ProxyExecutionListener;
+import io.r2dbc.proxy.support.QueryExecutionInfoFormatter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Listener of queries executed through the ConnectionFactory recording the time taken to execute each statement or
+ * batch as r2dbc.query timer, tagged by pool name, statement type and outcome. Statements are not tagged by their SQL
+ * to keep the number of timers bounded, the repository operation issuing them is recorded by
+ * {@link OperationMetricsAspect}.
+ *
+ * Queries taking longer than the slow query threshold are logged at WARN level along with their bound parameters.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+public class QueryMetricsListener implements ProxyExecutionListener {
+
+    private static final List<String> STATEMENT_TYPES = Arrays.asList("SELECT", "INSERT", "UPDATE", "DELETE", "MERGE");
+
+    private final String name;
+    private final MeterRegistry meterRegistry;
+    private final Duration slowQueryThreshold;
+    private final QueryExecutionInfoFormatter formatter;
+
+    public QueryMetricsListener(
+        String name, MeterRegistry meterRegistry, InstrumentationProperties instrumentationProperties) {
+
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+        this.slowQueryThreshold = instrumentationProperties.getSlowQueryThreshold();
+        this.formatter = instrumentationProperties.isLogQueryBindings()
+            ? QueryExecutionInfoFormatter.showAll()
+            : new QueryExecutionInfoFormatter().showSuccess().showTime().showType().showBatchSize().showQuery();
+    }
+
+    @Override
+    public void afterQuery(QueryExecutionInfo execInfo) {
+        Duration duration = execInfo.getExecuteDuration();
+
+        Timer
+            .builder("r2dbc.query")
+            .description("Time taken to execute a statement until its results are available")
+            .tags(
+                "name", name,
+                "type", statementType(execInfo.getQueries()),
+                "outcome", execInfo.isSuccess() ? "success" : "failure")
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(duration);
+
+        if (!slowQueryThreshold.isZero() && duration.compareTo(slowQueryThreshold) >= 0) {
+            log.warn("Slow query took {} ms :: {}", duration.toMillis(), formatter.format(execInfo));
+        }
+    }
+
+    /**
+     * Type of the statement is its leading keyword, and type of a batch the leading keyword shared by its statements
+     */
+    private String statementType(List<QueryInfo> queries) {
+        String type = null;
+        for (QueryInfo query : queries) {
+            String sql = query.getQuery().trim();
+            int end = 0;
+            while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+                end++;
+            }
+            String keyword = sql.substring(0, end).toUpperCase(Locale.ROOT);
+            if (!STATEMENT_TYPES.contains(keyword) || (type != null && !type.equals(keyword))) {
+                return "OTHER";
+            }
+            type = keyword;
+        }
+        return type == null ? "OTHER" : type;
+    }
+}
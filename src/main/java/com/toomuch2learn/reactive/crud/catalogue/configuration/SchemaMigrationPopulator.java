@@ -0,0 +1,122 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import io.r2dbc.spi.Connection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.data.r2dbc.connectionfactory.init.DatabasePopulator;
+import org.springframework.data.r2dbc.connectionfactory.init.ResourceDatabasePopulator;
+import org.springframework.data.r2dbc.connectionfactory.init.ScriptException;
+import org.springframework.data.r2dbc.connectionfactory.init.UncategorizedScriptException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * DatabasePopulator applying versioned migration scripts which have not been applied yet. Scripts are named
+ * V{version}__{description}.sql and applied in version order, with each applied version recorded in SCHEMA_VERSION.
+ * Unlike running schema.sql on every startup, existing tables and data are left untouched.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+public class SchemaMigrationPopulator implements DatabasePopulator {
+
+    private static final Pattern MIGRATION_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final String CREATE_SCHEMA_VERSION =
+        "CREATE TABLE IF NOT EXISTS SCHEMA_VERSION (" +
+        "VERSION INT PRIMARY KEY NOT NULL, " +
+        "DESCRIPTION VARCHAR(255) NOT NULL, " +
+        "INSTALLED_ON TIMESTAMP NOT NULL DEFAULT NOW())";
+
+    private static final String SELECT_VERSIONS = "SELECT VERSION FROM SCHEMA_VERSION";
+
+    private static final String INSERT_VERSION = "INSERT INTO SCHEMA_VERSION(VERSION, DESCRIPTION) VALUES($1, $2)";
+
+    private final String locationPattern;
+
+    /**
+     * @param locationPattern resource pattern to look up migration scripts, e.g. classpath:schema/migration/*.sql
+     */
+    public SchemaMigrationPopulator(String locationPattern) {
+        this.locationPattern = locationPattern;
+    }
+
+    @Override
+    public Mono<Void> populate(Connection connection) throws ScriptException {
+        List<Migration> migrations = findMigrations();
+
+        return execute(connection, CREATE_SCHEMA_VERSION)
+            .thenMany(
+                Flux.from(connection.createStatement(SELECT_VERSIONS).execute())
+                    .flatMap(result -> result.map((row, metadata) -> ((Number) row.get("VERSION")).intValue())))
+            .collect(Collectors.toSet())
+            .flatMapMany(applied -> Flux.fromIterable(migrations).filter(migration -> !applied.contains(migration.version)))
+            .concatMap(migration -> apply(connection, migration))
+            .then();
+    }
+
+    private Mono<Void> apply(Connection connection, Migration migration) {
+        log.info("Applying schema migration V{} :: {}", migration.version, migration.description);
+
+        return new ResourceDatabasePopulator(migration.resource)
+            .populate(connection)
+            .then(Flux.from(
+                connection
+                    .createStatement(INSERT_VERSION)
+                    .bind(0, migration.version)
+                    .bind(1, migration.description)
+                    .execute())
+                .flatMap(result -> result.getRowsUpdated())
+                .then());
+    }
+
+    private Mono<Void> execute(Connection connection, String sql) {
+        return Flux.from(connection.createStatement(sql).execute())
+            .flatMap(result -> result.getRowsUpdated())
+            .then();
+    }
+
+    private List<Migration> findMigrations() {
+        try {
+            List<Migration> migrations = new ArrayList<>();
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(locationPattern)) {
+                Matcher matcher = MIGRATION_NAME.matcher(resource.getFilename());
+                if (matcher.matches()) {
+                    migrations.add(new Migration(
+                        Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), resource));
+                }
+                else {
+                    log.warn("Ignoring schema migration script not matching V<version>__<description>.sql :: {}", resource);
+                }
+            }
+
+            migrations.sort(Comparator.comparingInt(migration -> migration.version));
+            return migrations;
+        }
+        catch (IOException e) {
+            throw new UncategorizedScriptException("Failed to look up schema migrations at " + locationPattern, e);
+        }
+    }
+
+    private static class Migration {
+
+        private final int version;
+        private final String description;
+        private final Resource resource;
+
+        Migration(int version, String description, Resource resource) {
+            this.version = version;
+            this.description = description;
+            this.resource = resource;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "search")
+public class SearchProperties {
+
+    /**
+     * Number of items returned by a search when the client does not ask for a specific limit
+     */
+    private int defaultLimit = 10;
+
+    /**
+     * Upper bound on the number of items a client can ask a search to return
+     */
+    private int maxLimit = 100;
+
+    /**
+     * Number of rows fetched per round trip while loading the index at startup
+     */
+    private int loadFetchSize = 500;
+
+    /**
+     * Time to wait for the index to be loaded at startup before failing to start
+     */
+    private Duration loadTimeout = Duration.ofMinutes(2);
+}
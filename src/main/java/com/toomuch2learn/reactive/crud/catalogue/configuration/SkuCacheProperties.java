@@ -0,0 +1,21 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "sku-cache")
+public class SkuCacheProperties {
+
+    /**
+     * Maximum number of Catalogue Items held in the cache
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * Duration after which a cached Catalogue Item is evicted, bounding staleness if an invalidation is missed
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
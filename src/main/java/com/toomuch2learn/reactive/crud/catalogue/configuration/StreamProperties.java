@@ -0,0 +1,41 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "stream")
+public class StreamProperties {
+
+    /**
+     * Number of items requested from the database cursor at a time, replenished as the client consumes them
+     */
+    private int prefetch = 256;
+
+    /**
+     * Number of items sent per event when the client streams chunks without asking for a specific size
+     */
+    private int defaultChunkSize = 100;
+
+    /**
+     * Upper bound on the chunk size a client can request
+     */
+    private int maxChunkSize = 1000;
+
+    /**
+     * Maximum items per second sent to each client, 0 to only be limited by the client's demand. Clients can ask for
+     * a lower rate.
+     */
+    private int maxRate = 0;
+
+    /**
+     * Minimum items per second a client can ask for, so a stream cannot hold its database connection indefinitely
+     */
+    private int minRate = 10;
+
+    /**
+     * Maximum number of streams open at a time. Each stream holds a pooled database connection until it completes,
+     * so this should leave connections of the pool to other requests.
+     */
+    private int maxConcurrentStreams = 10;
+}
@@ -0,0 +1,20 @@
+package com.toomuch2learn.reactive.crud.catalogue.configuration;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Excludes an operation from the catalogue.operations timer of {@link OperationMetricsAspect}. Meant for streams held
+ * open for as long as the client stays connected, whose duration says nothing about the latency of the operation and
+ * would only skew the percentiles of the layer.
+ *
+ * @author Madan Narra
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Untimed {
+}
@@ -1,24 +1,61 @@
 package com.toomuch2learn.reactive.crud.catalogue.controller;
 
+import com.toomuch2learn.reactive.crud.catalogue.configuration.CatalogueMediaTypes;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.ImageRenditionProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.Untimed;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEvent;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventBatch;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventConflator;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventEncoder;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventFilter;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventOutbox;
 import com.toomuch2learn.reactive.crud.catalogue.exception.FileStorageException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.InsufficientInventoryException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.InvalidRequestException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.PayloadTooLargeException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.PreconditionFailedException;
 import com.toomuch2learn.reactive.crud.catalogue.exception.ResourceNotFoundException;
 import com.toomuch2learn.reactive.crud.catalogue.exception.WrappedException;
+import com.toomuch2learn.reactive.crud.catalogue.model.BulkItemResult;
 import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemImage;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemPage;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueSearchResult;
+import com.toomuch2learn.reactive.crud.catalogue.model.ImportSummary;
+import com.toomuch2learn.reactive.crud.catalogue.model.InventoryAdjustment;
+import com.toomuch2learn.reactive.crud.catalogue.model.InventoryAdjustmentResult;
+import com.toomuch2learn.reactive.crud.catalogue.model.InventoryLevel;
 import com.toomuch2learn.reactive.crud.catalogue.model.ResourceIdentity;
+import com.toomuch2learn.reactive.crud.catalogue.model.SkuReference;
 import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueCrudService;
-import com.toomuch2learn.reactive.crud.catalogue.service.FileStorageService;
+import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueImageService;
+import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueImportService;
+import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueSearchIndex;
+import com.toomuch2learn.reactive.crud.catalogue.service.ImageRenditionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Controller class to handle Catalogue Item CRUD operations and Catalogue Item image upload
@@ -30,12 +67,36 @@ import java.time.Duration;
 @RequestMapping(CatalogueControllerAPIPaths.BASE_PATH)
 public class CatalogueController {
 
+    // Entity tag of an If-Match list, optionally weak, along with the separator following it
+    private static final Pattern ENTITY_TAG = Pattern.compile("\\s*(W/)?\"([^\"]*)\"\\s*(,|$)");
+
+    @Autowired
+    private CatalogueImageService catalogueImageService;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
     @Autowired
-    private FileStorageService fileStorageService;
+    private ImageRenditionProperties imageRenditionProperties;
 
     @Autowired
     private CatalogueCrudService catalogueCrudService;
 
+    @Autowired
+    private CatalogueImportService catalogueImportService;
+
+    @Autowired
+    private CatalogueSearchIndex catalogueSearchIndex;
+
+    @Autowired
+    private CatalogueItemEventOutbox eventOutbox;
+
+    @Autowired
+    private CatalogueItemEventEncoder eventEncoder;
+
+    @Autowired
+    private CatalogueItemEventConflator eventConflator;
+
     /**
      * Get Catalogue Items available in database
      *
@@ -47,6 +108,50 @@ public class CatalogueController {
         return catalogueCrudService.getCatalogueItems();
     }
 
+    /**
+     * Get a page of Catalogue Items sorted by name. Pages are fetched using keyset pagination, so the cursor returned
+     * with a page should be passed back as is to fetch the next page.
+     *
+     * @param cursor opaque cursor returned with the previous page
+     * @param size number of items in the page
+     * @param category optional category to filter on
+     * @param minPrice optional minimum price
+     * @param maxPrice optional maximum price
+     * @return catalogueItemPage
+     */
+    @GetMapping(CatalogueControllerAPIPaths.GET_ITEMS_PAGE)
+    @ResponseStatus(value = HttpStatus.OK)
+    public Mono<CatalogueItemPage> getCatalogueItemsPage(
+        @RequestParam(value = "cursor", required = false) String cursor,
+        @RequestParam(value = "size", required = false) Integer size,
+        @RequestParam(value = "category", required = false) String category,
+        @RequestParam(value = "minPrice", required = false) Double minPrice,
+        @RequestParam(value = "maxPrice", required = false) Double maxPrice) {
+
+        return catalogueCrudService.getCatalogueItems(cursor, size, category, minPrice, maxPrice);
+    }
+
+    /**
+     * Search Catalogue Items by the words of their name and description, matching partially typed words so it can back
+     * typeahead. Searches are answered from the in-process search index without querying the database, best match
+     * first, along with the number of matching items in each category.
+     *
+     * @param query words to search for
+     * @param category optional category to restrict matches to
+     * @param limit optional maximum number of items returned
+     * @return catalogueSearchResult
+     * @throws InvalidRequestException
+     */
+    @GetMapping(CatalogueControllerAPIPaths.SEARCH)
+    @ResponseStatus(value = HttpStatus.OK)
+    public Mono<CatalogueSearchResult> searchCatalogueItems(
+        @RequestParam(value = "q") String query,
+        @RequestParam(value = "category", required = false) String category,
+        @RequestParam(value = "limit", required = false) Integer limit) throws InvalidRequestException {
+
+        return Mono.fromSupplier(() -> catalogueSearchIndex.search(query, category, limit));
+    }
+
     /**
      * If api needs to push items as Streams to ensure Backpressure is applied, we need to set produces to MediaType.TEXT_EVENT_STREAM_VALUE
      *
@@ -54,28 +159,114 @@ public class CatalogueController {
      * MediaType.APPLICATION_STREAM_JSON_VALUE is for server to server/http client communications.
      *
      * https://stackoverflow.com/questions/52098863/whats-the-difference-between-text-event-stream-and-application-streamjson
+     *
+     * Items are sent as fast as the client reads them, and no faster than rate items per second when provided.
+     *
+     * @param rate optional maximum items per second
      * @return catalogueItems
      */
+    @Untimed
     @GetMapping(path= CatalogueControllerAPIPaths.GET_ITEMS_STREAM, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     @ResponseStatus(value = HttpStatus.OK)
-    public Flux<CatalogueItem> getCatalogueItemsStream() {
-        return catalogueCrudService
-                .getCatalogueItems()
-                .delayElements(Duration.ofMillis(200));
+    public Flux<CatalogueItem> getCatalogueItemsStream(
+        @RequestParam(value = "rate", required = false) Integer rate) {
+
+        return catalogueCrudService.streamCatalogueItems(rate);
+    }
+
+    /**
+     * Same as {@link #getCatalogueItemsStream} with each event carrying a chunk of items
+     *
+     * @param size optional number of items per event
+     * @param rate optional maximum items per second
+     * @return chunks of catalogueItems
+     */
+    @Untimed
+    @GetMapping(path= CatalogueControllerAPIPaths.GET_ITEMS_STREAM_CHUNKS, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseStatus(value = HttpStatus.OK)
+    public Flux<List<CatalogueItem>> getCatalogueItemChunksStream(
+        @RequestParam(value = "size", required = false) Integer size,
+        @RequestParam(value = "rate", required = false) Integer rate) {
+
+        return catalogueCrudService.streamCatalogueItemChunks(size, rate);
+    }
+
+    /**
+     * Stream catalogue item events as Server Sent Events from the time of subscription. Filters provided are applied
+     * before events are encoded, and each event is sent with its type as the event name and its sequence as the id.
+     *
+     * Clients reconnecting with Last-Event-ID resume after that event from the retained events, replayed from the outbox
+     * when no longer held by the event bus. RESYNC event is sent when they are no longer retained, asking the client to
+     * reload the catalogue.
+     *
+     * With conflate, events are sent once per conflation window as a BATCH event holding the latest change of each SKU.
+     *
+     * @param eventTypes optional event types to receive
+     * @param categories optional categories to receive
+     * @param skuPrefixes optional SKU prefixes to receive
+     * @param minPrice optional minimum price
+     * @param maxPrice optional maximum price
+     * @param conflate whether to conflate events per SKU
+     * @param lastEventId id of the last event received before reconnecting
+     * @param request
+     * @return catalogueItemEvents
+     */
+    @Untimed
+    @GetMapping(path = CatalogueControllerAPIPaths.GET_ITEMS_SSE_EVENTS, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseStatus(value = HttpStatus.OK)
+    public Flux<ServerSentEvent<String>> getCatalogueItemEvents(
+        @RequestParam(value = "eventType", required = false) Set<String> eventTypes,
+        @RequestParam(value = "category", required = false) Set<String> categories,
+        @RequestParam(value = "skuPrefix", required = false) List<String> skuPrefixes,
+        @RequestParam(value = "minPrice", required = false) Double minPrice,
+        @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+        @RequestParam(value = "conflate", defaultValue = "false") boolean conflate,
+        @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+        ServerHttpRequest request) {
+
+        CatalogueItemEventFilter filter = new CatalogueItemEventFilter();
+        filter.setEventTypes(eventTypes);
+        filter.setCategories(categories);
+        filter.setSkuPrefixes(skuPrefixes);
+        filter.setMinPrice(minPrice);
+        filter.setMaxPrice(maxPrice);
+
+        Flux<CatalogueItemEvent> events
+            = eventOutbox.subscribe("sse-" + request.getId(), () -> filter, lastEventId);
+
+        if (conflate) {
+            return eventConflator
+                .conflate(events)
+                .map(batch -> ServerSentEvent
+                    .builder(new String(eventEncoder.encode(batch), StandardCharsets.UTF_8))
+                    .id(String.valueOf(batch.getSequence()))
+                    .event(CatalogueItemEventBatch.CATALOGUEITEM_BATCH)
+                    .build());
+        }
+
+        return events
+            .map(evt -> ServerSentEvent
+                .builder(new String(eventEncoder.encode(evt), StandardCharsets.UTF_8))
+                .id(String.valueOf(evt.getSequence()))
+                .event(evt.getEventType())
+                .build());
     }
 
     /**
-     * Get Catalogue Item by SKU
+     * Get Catalogue Item by SKU. Version of the item is returned as ETag, which can be passed in If-Match when
+     * updating the item to detect concurrent modifications.
      * @param skuNumber
      * @return catalogueItem
      * @throws ResourceNotFoundException
      */
     @GetMapping(CatalogueControllerAPIPaths.GET_ITEM)
-    public Mono<CatalogueItem>
+    public Mono<ResponseEntity<CatalogueItem>>
         getCatalogueItemBySKU(@PathVariable(value = "sku") String skuNumber)
             throws ResourceNotFoundException {
 
-        return catalogueCrudService.getCatalogueItem(skuNumber);
+        return catalogueCrudService
+            .getCatalogueItem(skuNumber)
+            .map(item -> ResponseEntity.ok().eTag(toETag(item.getVersion())).body(item));
     }
 
     /**
@@ -93,59 +284,229 @@ public class CatalogueController {
     }
 
     /**
-     * Update Catalogue Item by SKU
+     * Update Catalogue Item by SKU. Response is sent once the update is written.
+     *
+     * If-Match header with the ETag returned by get makes the update conditional, failing with 412 when the item has
+     * been modified since. Any of a list of ETags may match, and weak ETags never match. ETag of the updated item is
+     * returned.
      * @param skuNumber
+     * @param ifMatch
      * @param catalogueItem
      * @throws ResourceNotFoundException
+     * @throws PreconditionFailedException
      */
     @PutMapping(CatalogueControllerAPIPaths.UPDATE)
     @ResponseStatus(value = HttpStatus.OK)
-    public void updateCatalogueItem(
+    public Mono<ResponseEntity<Void>> updateCatalogueItem(
         @PathVariable(value = "sku") String skuNumber,
-        @Valid @RequestBody CatalogueItem catalogueItem) throws ResourceNotFoundException {
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+        @Valid @RequestBody CatalogueItem catalogueItem) throws ResourceNotFoundException, PreconditionFailedException {
 
-        catalogueCrudService.updateCatalogueItem(catalogueItem);
+        return catalogueCrudService
+            .updateCatalogueItem(skuNumber, catalogueItem, fromETag(ifMatch))
+            .then(Mono.fromSupplier(() -> ResponseEntity.ok().eTag(toETag(catalogueItem.getVersion())).<Void>build()));
     }
 
     /**
-     * Delete Catalogue Item by SKU
+     * Delete Catalogue Item by SKU. Response is sent once the delete is written.
      * @param skuNumber
      * @throws ResourceNotFoundException
      */
     @DeleteMapping(CatalogueControllerAPIPaths.DELETE)
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    public void removeCatalogItem(@PathVariable(value = "sku") String skuNumber)
+    public Mono<Void> removeCatalogItem(@PathVariable(value = "sku") String skuNumber)
         throws ResourceNotFoundException {
 
-        Mono<CatalogueItem> catalogueItem = catalogueCrudService.getCatalogueItem(skuNumber);
-        catalogueItem.subscribe(
-            value -> {
-                catalogueCrudService.deleteCatalogueItem(value);
-            }
-        );
+        return catalogueCrudService.deleteCatalogueItem(skuNumber);
     }
 
     /**
-     * Upload image to the Catalogue Item by SKU
+     * Create Catalogue Items in bulk. Items can be sent as a JSON array or as a NDJSON stream, and are written in
+     * chunks with one batch statement per chunk. Result of each item is returned in the order items were sent and is
+     * streamed back when NDJSON is accepted by the client.
+     *
+     * @param catalogueItems
+     * @return result for each item
+     */
+    @PostMapping(
+        path = CatalogueControllerAPIPaths.BULK_CREATE,
+        consumes = {MediaType.APPLICATION_JSON_VALUE, CatalogueMediaTypes.APPLICATION_NDJSON_VALUE},
+        produces = {MediaType.APPLICATION_JSON_VALUE, CatalogueMediaTypes.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(value = HttpStatus.OK)
+    public Flux<BulkItemResult> addCatalogueItems(@RequestBody Flux<CatalogueItem> catalogueItems) {
+        return catalogueCrudService.addCatalogueItems(catalogueItems);
+    }
+
+    /**
+     * Import Catalogue Items streamed as NDJSON, one item per line. Lines are decoded as they arrive and saved in
+     * chunks with bounded concurrency, so imports of any size run in constant memory.
+     *
+     * @param content
+     * @return summary of the import
+     */
+    @PostMapping(path = CatalogueControllerAPIPaths.IMPORT, consumes = CatalogueMediaTypes.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(value = HttpStatus.OK)
+    public Mono<ImportSummary> importCatalogueItems(@RequestBody Flux<DataBuffer> content) {
+        return catalogueImportService.importCatalogueItems(content);
+    }
+
+    /**
+     * Update Catalogue Items by SKU in bulk. Accepts and returns the same formats as bulk create.
+     *
+     * @param catalogueItems
+     * @return result for each item
+     */
+    @PutMapping(
+        path = CatalogueControllerAPIPaths.BULK_UPDATE,
+        consumes = {MediaType.APPLICATION_JSON_VALUE, CatalogueMediaTypes.APPLICATION_NDJSON_VALUE},
+        produces = {MediaType.APPLICATION_JSON_VALUE, CatalogueMediaTypes.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(value = HttpStatus.OK)
+    public Flux<BulkItemResult> updateCatalogueItems(@RequestBody Flux<CatalogueItem> catalogueItems) {
+        return catalogueCrudService.updateCatalogueItems(catalogueItems);
+    }
+
+    /**
+     * Delete Catalogue Items by SKU in bulk. Accepts and returns the same formats as bulk create.
+     *
+     * @param skuReferences
+     * @return result for each SKU
+     */
+    @DeleteMapping(
+        path = CatalogueControllerAPIPaths.BULK_DELETE,
+        consumes = {MediaType.APPLICATION_JSON_VALUE, CatalogueMediaTypes.APPLICATION_NDJSON_VALUE},
+        produces = {MediaType.APPLICATION_JSON_VALUE, CatalogueMediaTypes.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(value = HttpStatus.OK)
+    public Flux<BulkItemResult> removeCatalogueItems(@RequestBody Flux<SkuReference> skuReferences) {
+        return catalogueCrudService.deleteCatalogueItems(skuReferences);
+    }
+
+    /**
+     * Adjust inventory of Catalogue Item by SKU with the delta provided, without sending the whole item. Response is
+     * sent once the adjustment is written and carries the new inventory level.
+     *
+     * @param skuNumber
+     * @param adjustment
+     * @return inventoryLevel
+     * @throws ResourceNotFoundException
+     * @throws InsufficientInventoryException
+     */
+    @PatchMapping(CatalogueControllerAPIPaths.ADJUST_INVENTORY)
+    @ResponseStatus(value = HttpStatus.OK)
+    public Mono<InventoryLevel> adjustInventory(
+        @PathVariable(value = "sku") String skuNumber,
+        @Valid @RequestBody InventoryAdjustment adjustment)
+            throws ResourceNotFoundException, InsufficientInventoryException {
+
+        return catalogueCrudService.adjustInventory(skuNumber, adjustment.getDelta());
+    }
+
+    /**
+     * Adjust inventory of Catalogue Items by SKU in batch. Accepts and returns the same formats as bulk create.
+     *
+     * @param adjustments
+     * @return result for each adjustment
+     */
+    @PatchMapping(
+        path = CatalogueControllerAPIPaths.BULK_ADJUST_INVENTORY,
+        consumes = {MediaType.APPLICATION_JSON_VALUE, CatalogueMediaTypes.APPLICATION_NDJSON_VALUE},
+        produces = {MediaType.APPLICATION_JSON_VALUE, CatalogueMediaTypes.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(value = HttpStatus.OK)
+    public Flux<InventoryAdjustmentResult> adjustInventories(@RequestBody Flux<InventoryAdjustment> adjustments) {
+        return catalogueCrudService.adjustInventories(adjustments);
+    }
+
+    /**
+     * Upload image to the Catalogue Item by SKU, replacing its current image. Responds once the image is stored.
      * @param skuNumber
      * @param filePart
+     * @return catalogueItemImage
      * @throws ResourceNotFoundException
+     * @throws PayloadTooLargeException
      * @throws FileStorageException
      */
     @PostMapping(CatalogueControllerAPIPaths.UPLOAD_IMAGE)
     @ResponseStatus(value = HttpStatus.CREATED)
-    public void uploadCatalogueItemImage(
+    public Mono<CatalogueItemImage> uploadCatalogueItemImage(
         @PathVariable(value = "sku") String skuNumber,
         @RequestPart("file") FilePart filePart)
+            throws ResourceNotFoundException, PayloadTooLargeException {
+
+        return catalogueImageService.storeImage(skuNumber, filePart);
+    }
+
+    /**
+     * Get image of the Catalogue Item by SKU. Image file is written with zero-copy transfer where the server supports
+     * it, Range requests are answered with partial content, and its checksum is sent as ETag so unchanged images are
+     * answered with Not Modified.
+     * @param skuNumber
+     * @return image
+     * @throws ResourceNotFoundException
+     */
+    @GetMapping(CatalogueControllerAPIPaths.GET_IMAGE)
+    public Mono<ResponseEntity<Resource>> getCatalogueItemImage(@PathVariable(value = "sku") String skuNumber)
+        throws ResourceNotFoundException {
+
+        return catalogueImageService
+            .getImage(skuNumber)
+            .map(image -> ResponseEntity
+                .ok()
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .eTag(image.getChecksum())
+                .lastModified(image.getUploadedOn())
+                .body(catalogueImageService.loadImage(image)));
+    }
+
+    /**
+     * Get rendition of the image of the Catalogue Item by SKU, such as its thumbnail. Renditions are derived from the
+     * image content, so they are cached publicly and validated by ETag.
+     * @param skuNumber
+     * @param rendition name of the rendition
+     * @return rendition
+     * @throws ResourceNotFoundException
+     */
+    @GetMapping(CatalogueControllerAPIPaths.GET_IMAGE_RENDITION)
+    public Mono<ResponseEntity<Resource>> getCatalogueItemImageRendition(
+        @PathVariable(value = "sku") String skuNumber,
+        @PathVariable(value = "rendition") String rendition)
             throws ResourceNotFoundException {
 
-        Mono<CatalogueItem> catalogueItem = catalogueCrudService.getCatalogueItem(skuNumber);
-        catalogueItem.subscribe(
-            value -> {
-                fileStorageService
-                    .storeFile(filePart)
-                    .subscribe();
+        return catalogueImageService
+            .getImage(skuNumber)
+            .flatMap(image -> imageRenditionService
+                .getRendition(image, rendition)
+                .map(resource -> ResponseEntity
+                    .ok()
+                    .contentType(imageRenditionService.renditionContentType(image))
+                    .cacheControl(CacheControl.maxAge(imageRenditionProperties.getCacheMaxAge()).cachePublic())
+                    .eTag(image.getChecksum() + "-" + rendition)
+                    .body(resource)));
+    }
+
+    private String toETag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Parse versions from If-Match header, a list of entity tags compared using strong comparison. Missing header or
+     * "*" means update is not conditional. Weak entity tags, and those which are not a version, never match, so the
+     * update fails when no other tag is listed.
+     */
+    private List<Long> fromETag(String ifMatch) {
+        if (!StringUtils.hasText(ifMatch) || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+
+        List<Long> versions = new ArrayList<>();
+        Matcher matcher = ENTITY_TAG.matcher(ifMatch);
+        for (int position = 0; position < ifMatch.length(); position = matcher.end()) {
+            if (!matcher.find(position) || matcher.start() != position) {
+                throw new InvalidRequestException(String.format("Invalid If-Match header provided :: %s", ifMatch));
+            }
+
+            if (matcher.group(1) == null && matcher.group(2).matches("\\d{1,18}")) {
+                versions.add(Long.valueOf(matcher.group(2)));
             }
-        );
+        }
+        return versions;
     }
 }
@@ -12,10 +12,22 @@ public class CatalogueControllerAPIPaths {
     public static final String CREATE = "/";
     public static final String GET_ITEMS = "/";
     public static final String GET_ITEMS_STREAM = "/stream";
+    public static final String GET_ITEMS_STREAM_CHUNKS = "/stream/chunks";
+    public static final String GET_ITEMS_PAGE = "/page";
+    public static final String SEARCH = "/search";
     public static final String GET_ITEM = "/{sku}";
     public static final String UPDATE = "/{sku}";
     public static final String DELETE = "/{sku}";
     public static final String UPLOAD_IMAGE = "/{sku}/image";
+    public static final String GET_IMAGE = "/{sku}/image";
+    public static final String GET_IMAGE_RENDITION = "/{sku}/image/{rendition}";
+    public static final String ADJUST_INVENTORY = "/{sku}/inventory";
+
+    public static final String BULK_CREATE = "/bulk";
+    public static final String BULK_UPDATE = "/bulk";
+    public static final String BULK_DELETE = "/bulk";
+    public static final String IMPORT = "/import";
+    public static final String BULK_ADJUST_INVENTORY = "/inventory";
 
     public static final String GET_ITEMS_SSE_EVENTS = "/sse/events";
 
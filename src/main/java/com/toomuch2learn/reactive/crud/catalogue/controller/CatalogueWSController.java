@@ -3,8 +3,13 @@ package com.toomuch2learn.reactive.crud.catalogue.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEvent;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventConflator;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventEncoder;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventFilter;
 import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventPublisher;
-import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,12 +17,16 @@ import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
 import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Class to initialize WebSocketHandler class to establish websocket connection and publish messages when Catalogue Item
@@ -43,30 +52,73 @@ public class CatalogueWSController {
     }
 
     @Bean
-    WebSocketHandler webSocketHandler(CatalogueItemEventPublisher eventPublisher, ObjectMapper objectMapper) {
+    WebSocketHandler webSocketHandler(
+        CatalogueItemEventPublisher eventPublisher,
+        CatalogueItemEventEncoder eventEncoder,
+        CatalogueItemEventConflator eventConflator,
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry) {
 
-        Flux<CatalogueItemEvent> publish = Flux.create(eventPublisher).share();
+        AtomicInteger sessions = new AtomicInteger();
+        Gauge.builder("catalogue.ws.sessions", sessions, AtomicInteger::get)
+            .description("Number of websocket sessions receiving catalogue item events")
+            .register(meterRegistry);
+        Timer fanOutLatency = Timer.builder("catalogue.ws.fanout.latency")
+            .description("Time from catalogue item event being published to its frame being handed to a session")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
 
-        // Push events that are captured when catalogue item is added or updated
+        // Push events that are captured when catalogue item is added or updated. Each session subscribes to the event
+        // bus with its own bounded buffer, so a slow session does not hold back the others. Events are encoded once
+        // and the same bytes are wrapped as the frame for every session
         return session -> {
-            Flux<WebSocketMessage> messageFlux = publish.map(evt -> {
-                try {
 
-                    // Get source from event and set the type of event in map when pushing the message
-                    CatalogueItem item = (CatalogueItem) evt.getSource();
-                    Map<String, CatalogueItem> data = new HashMap<>();
-                    data.put(evt.getEventType(), item);
+            // Session receives all events until it sends a subscription message with the filter to apply. Filter can
+            // be replaced any time by sending another subscription message
+            AtomicReference<CatalogueItemEventFilter> filter = new AtomicReference<>(CatalogueItemEventFilter.all());
 
-                    return objectMapper.writeValueAsString(data);
-                } catch (JsonProcessingException e) {
-                    throw new RuntimeException(e);
-                }
-            }).map(str -> {
-                log.debug("Publishing message to Websocket :: " + str);
-                return session.textMessage(str);
+            Mono<Void> subscriptions = session
+                .receive()
+                .map(WebSocketMessage::getPayloadAsText)
+                .doOnNext(message -> {
+                    try {
+                        filter.set(objectMapper.readValue(message, CatalogueItemEventFilter.class));
+                        log.debug("Websocket session {} subscribed with filter {}", session.getId(), filter.get());
+                    } catch (JsonProcessingException e) {
+                        log.warn("Ignoring invalid subscription message from Websocket session {} :: {}",
+                            session.getId(), e.getOriginalMessage());
+                    }
+                })
+                .then();
+
+            Flux<CatalogueItemEvent> events = eventPublisher.subscribe("ws-" + session.getId(), filter::get);
+
+            // Sessions connecting with conflate=true receive the latest change of each SKU once per window
+            Flux<byte[]> payloads = isConflated(session)
+                ? eventConflator.conflate(events).map(eventEncoder::encode)
+                : events.map(evt -> {
+                    fanOutLatency.record(System.currentTimeMillis() - evt.getTimestamp(), TimeUnit.MILLISECONDS);
+                    return eventEncoder.encode(evt);
+                });
+
+            Flux<WebSocketMessage> messageFlux = payloads.map(payload -> {
+                log.debug("Publishing message to Websocket session {}", session.getId());
+                return new WebSocketMessage(WebSocketMessage.Type.TEXT, session.bufferFactory().wrap(payload));
             });
 
-            return session.send(messageFlux);
+            return session
+                .send(messageFlux)
+                .and(subscriptions)
+                .doFirst(sessions::incrementAndGet)
+                .doFinally(signal -> sessions.decrementAndGet());
         };
     }
+
+    private boolean isConflated(WebSocketSession session) {
+        return Boolean.parseBoolean(UriComponentsBuilder
+            .fromUri(session.getHandshakeInfo().getUri())
+            .build()
+            .getQueryParams()
+            .getFirst("conflate"));
+    }
 }
@@ -3,22 +3,78 @@ package com.toomuch2learn.reactive.crud.catalogue.event;
 import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
 import org.springframework.context.ApplicationEvent;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
- * Event thrown when CatalogueItem is created or updated
+ * Event thrown when CatalogueItem is created, updated or deleted. Source is either a single CatalogueItem or, for bulk
+ * operations, the list of CatalogueItems written in a chunk.
+ *
+ * Events of changes are relayed from the outbox once committed, carrying their outbox id as sequence.
  */
 public class CatalogueItemEvent extends ApplicationEvent {
 
     public static final String CATALOGUEITEM_CREATED = "CREATED";
     public static final String CATALOGUEITEM_UPDATED = "UPDATED";
+    public static final String CATALOGUEITEM_DELETED = "DELETED";
+    public static final String CATALOGUEITEM_INVENTORY_CHANGED = "INVENTORY_CHANGED";
+
+    /**
+     * Sent to a resuming subscriber when events after the last one it received are no longer retained, so it should
+     * reload the catalogue. Carries no items.
+     */
+    public static final String CATALOGUEITEM_RESYNC = "RESYNC";
 
     private String eventType;
 
+    private long sequence;
+
     public CatalogueItemEvent(String eventType, CatalogueItem catalogueItem) {
         super(catalogueItem);
         this.eventType = eventType;
     }
 
+    public CatalogueItemEvent(String eventType, List<CatalogueItem> catalogueItems) {
+        super(catalogueItems);
+        this.eventType = eventType;
+    }
+
+    public CatalogueItemEvent(String eventType, CatalogueItem catalogueItem, long sequence) {
+        this(eventType, catalogueItem);
+        this.sequence = sequence;
+    }
+
+    public CatalogueItemEvent(String eventType, List<CatalogueItem> catalogueItems, long sequence) {
+        this(eventType, catalogueItems);
+        this.sequence = sequence;
+    }
+
     public String getEventType() {
         return eventType;
     }
+
+    /**
+     * Change sequence of the event, increasing with every event published
+     *
+     * @return sequence
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Get CatalogueItems carried by this event irrespective of the event being published for single or bulk operation
+     *
+     * @return catalogueItems
+     */
+    @SuppressWarnings("unchecked")
+    public List<CatalogueItem> getCatalogueItems() {
+        return getSource() instanceof CatalogueItem
+            ? Collections.singletonList((CatalogueItem) getSource())
+            : (List<CatalogueItem>) getSource();
+    }
 }
@@ -0,0 +1,30 @@
+package com.toomuch2learn.reactive.crud.catalogue.event;
+
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Events conflated over a window, holding the latest change of each SKU grouped by event type
+ *
+ * @author Madan Narra
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogueItemEventBatch {
+
+    public static final String CATALOGUEITEM_BATCH = "BATCH";
+
+    /**
+     * Sequence of the latest event conflated in the batch
+     */
+    private final long sequence;
+
+    /**
+     * Items by event type, with each SKU present only once across all types
+     */
+    private final Map<String, List<CatalogueItem>> catalogueItems;
+}
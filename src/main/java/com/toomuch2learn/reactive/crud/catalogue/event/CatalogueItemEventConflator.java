@@ -0,0 +1,171 @@
+package com.toomuch2learn.reactive.crud.catalogue.event;
+
+import com.toomuch2learn.reactive.crud.catalogue.configuration.EventBusProperties;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conflates catalogue item events over a window, so bursts of changes to the same SKU are sent as its latest state in
+ * one batch instead of as every intermediate event. Events keep being conflated while the subscriber is not ready for
+ * the next batch, so memory held is bounded by the number of distinct SKUs changed since the last batch sent, however
+ * slow the subscriber.
+ *
+ * @author Madan Narra
+ */
+@Component
+public class CatalogueItemEventConflator {
+
+    private final EventBusProperties eventBusProperties;
+    private final Counter conflated;
+
+    CatalogueItemEventConflator(EventBusProperties eventBusProperties, MeterRegistry meterRegistry) {
+        this.eventBusProperties = eventBusProperties;
+        this.conflated = Counter
+            .builder("catalogue.events.conflated")
+            .description("Number of item changes superseded by a later change to the same SKU within a window")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Conflate events over the configured window. Windows without events emit nothing, and windows ending while the
+     * subscriber has not requested a batch are merged into the next one.
+     *
+     * @param events
+     * @return batch per window
+     */
+    public Flux<CatalogueItemEventBatch> conflate(Flux<CatalogueItemEvent> events) {
+        return Flux.defer(() -> {
+            PendingConflation pending = new PendingConflation();
+
+            // Ticks are only taken as batches are requested, the rest are dropped so events keep being conflated
+            return Flux
+                .interval(eventBusProperties.getConflationWindow())
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromSupplier(pending::take), 1)
+                .takeUntilOther(events.doOnNext(pending::add).then())
+                .concatWith(Mono.fromSupplier(pending::take));
+        });
+    }
+
+    /**
+     * Conflation of events received since the last batch was taken. Events are added by the publishing thread while
+     * batches are taken on the timer.
+     */
+    private class PendingConflation {
+
+        private Conflation conflation = new Conflation();
+
+        synchronized void add(CatalogueItemEvent event) {
+            conflation.add(event);
+        }
+
+        /**
+         * @return batch of the events received since the last one, null if there were none
+         */
+        synchronized CatalogueItemEventBatch take() {
+            if (conflation.isEmpty()) {
+                return null;
+            }
+
+            CatalogueItemEventBatch batch = conflation.toBatch();
+            conflation = new Conflation();
+            return batch;
+        }
+    }
+
+    /**
+     * Latest change per SKU, in the order SKUs were first changed within the window
+     */
+    private class Conflation {
+
+        private final Map<String, String> eventTypes = new LinkedHashMap<>();
+        private final Map<String, CatalogueItem> items = new LinkedHashMap<>();
+        private boolean resync;
+        private long sequence;
+
+        Conflation add(CatalogueItemEvent event) {
+            sequence = event.getSequence();
+
+            if (CatalogueItemEvent.CATALOGUEITEM_RESYNC.equals(event.getEventType())) {
+                resync = true;
+                return this;
+            }
+
+            for (CatalogueItem item : event.getCatalogueItems()) {
+                String previousType = eventTypes.get(item.getSku());
+                if (previousType == null) {
+                    eventTypes.put(item.getSku(), event.getEventType());
+                    items.put(item.getSku(), item);
+                }
+                else {
+                    conflated.increment();
+                    merge(item.getSku(), previousType, event.getEventType(), item);
+                }
+            }
+            return this;
+        }
+
+        private void merge(String sku, String previousType, String eventType, CatalogueItem item) {
+            // Inventory change only carries SKU and inventory, so it is applied on top of a full item seen before
+            if (CatalogueItemEvent.CATALOGUEITEM_INVENTORY_CHANGED.equals(eventType)
+                && !CatalogueItemEvent.CATALOGUEITEM_DELETED.equals(previousType)
+                && !CatalogueItemEvent.CATALOGUEITEM_INVENTORY_CHANGED.equals(previousType)) {
+
+                CatalogueItem merged = new CatalogueItem();
+                BeanUtils.copyProperties(items.get(sku), merged);
+                merged.setInventory(item.getInventory());
+                items.put(sku, merged);
+                return;
+            }
+
+            // Item created within the window is still new to the subscriber when updated afterwards, so the update is
+            // applied on top of the created item, which holds the columns an update does not change
+            if (CatalogueItemEvent.CATALOGUEITEM_CREATED.equals(previousType)
+                && CatalogueItemEvent.CATALOGUEITEM_UPDATED.equals(eventType)) {
+
+                CatalogueItem merged = new CatalogueItem();
+                BeanUtils.copyProperties(items.get(sku), merged);
+                merged.setName(item.getName());
+                merged.setDescription(item.getDescription());
+                merged.setPrice(item.getPrice());
+                merged.setInventory(item.getInventory());
+                if (item.getUpdatedOn() != null) {
+                    merged.setUpdatedOn(item.getUpdatedOn());
+                }
+                if (item.getVersion() != null) {
+                    merged.setVersion(item.getVersion());
+                }
+                items.put(sku, merged);
+                return;
+            }
+
+            eventTypes.put(sku, eventType);
+            items.put(sku, item);
+        }
+
+        boolean isEmpty() {
+            return !resync && eventTypes.isEmpty();
+        }
+
+        CatalogueItemEventBatch toBatch() {
+            Map<String, List<CatalogueItem>> catalogueItems = new LinkedHashMap<>();
+            if (resync) {
+                catalogueItems.put(CatalogueItemEvent.CATALOGUEITEM_RESYNC, new ArrayList<>());
+            }
+            eventTypes.forEach((sku, eventType) ->
+                catalogueItems.computeIfAbsent(eventType, type -> new ArrayList<>()).add(items.get(sku)));
+
+            return new CatalogueItemEventBatch(sequence, catalogueItems);
+        }
+    }
+}
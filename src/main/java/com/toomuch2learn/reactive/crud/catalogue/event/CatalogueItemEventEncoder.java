@@ -0,0 +1,75 @@
+package com.toomuch2learn.reactive.crud.catalogue.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes CatalogueItemEvent to the JSON pushed to clients. Encoded bytes are kept for as long as the event is
+ * referenced by any subscriber, so an event is serialized once irrespective of the number of subscribers it is
+ * fanned out to.
+ *
+ * @author Madan Narra
+ */
+@Component
+public class CatalogueItemEventEncoder {
+
+    private final ObjectMapper objectMapper;
+    private final Counter encoded;
+
+    // Weak keys compare events by identity and let encoded bytes go with the event
+    private final LoadingCache<CatalogueItemEvent, byte[]> cache;
+
+    CatalogueItemEventEncoder(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.encoded = Counter
+            .builder("catalogue.events.encoded")
+            .description("Number of catalogue item events serialized for subscribers")
+            .register(meterRegistry);
+        this.cache = Caffeine.newBuilder().weakKeys().build(this::serialize);
+    }
+
+    /**
+     * Get the event encoded as JSON. Returned bytes are shared and should not be modified.
+     *
+     * @param event
+     * @return encoded event
+     */
+    public byte[] encode(CatalogueItemEvent event) {
+        return cache.get(event);
+    }
+
+    /**
+     * Encode conflated events as JSON, with items of each event type under the event type. Batches are specific to a
+     * subscriber, so they are not retained.
+     *
+     * @param batch
+     * @return encoded batch
+     */
+    public byte[] encode(CatalogueItemEventBatch batch) {
+        try {
+            encoded.increment();
+            return objectMapper.writeValueAsBytes(batch.getCatalogueItems());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] serialize(CatalogueItemEvent event) throws JsonProcessingException {
+        encoded.increment();
+
+        // Set the type of event as key and source as value. Source is a list of items for events published by bulk
+        // operations
+        Map<String, Object> data = new HashMap<>();
+        data.put(event.getEventType(), event.getSource());
+
+        return objectMapper.writeValueAsBytes(data);
+    }
+}
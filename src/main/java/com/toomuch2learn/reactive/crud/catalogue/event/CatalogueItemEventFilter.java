@@ -0,0 +1,95 @@
+package com.toomuch2learn.reactive.crud.catalogue.event;
+
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Subscription filter on catalogue item events. Criteria left empty match everything, and an item matches when it
+ * matches all criteria provided. Events which only carry the SKU, such as DELETED and INVENTORY_CHANGED, are matched
+ * on event type and SKU only, so subscribers do not miss changes to items they may hold.
+ *
+ * @author Madan Narra
+ */
+@Data
+@NoArgsConstructor
+public class CatalogueItemEventFilter {
+
+    private Set<String> eventTypes;
+
+    private Set<String> categories;
+
+    private List<String> skuPrefixes;
+
+    private Double minPrice;
+
+    private Double maxPrice;
+
+    /**
+     * Filter matching all events
+     *
+     * @return filter
+     */
+    public static CatalogueItemEventFilter all() {
+        return new CatalogueItemEventFilter();
+    }
+
+    /**
+     * Apply filter to the event. Same event is returned when all its items match, so it is shared with other
+     * subscribers, and a new event with the matching items otherwise.
+     *
+     * @param event
+     * @return event with matching items, null if nothing matches
+     */
+    public CatalogueItemEvent apply(CatalogueItemEvent event) {
+        if (!isEmpty(eventTypes) && eventTypes.stream().noneMatch(type -> type.equalsIgnoreCase(event.getEventType()))) {
+            return null;
+        }
+
+        List<CatalogueItem> items = event.getCatalogueItems();
+        List<CatalogueItem> matching = items.stream().filter(this::matches).collect(Collectors.toList());
+        if (matching.isEmpty()) {
+            return null;
+        }
+
+        if (matching.size() == items.size()) {
+            return event;
+        }
+
+        CatalogueItemEvent narrowed = new CatalogueItemEvent(event.getEventType(), matching);
+        narrowed.setSequence(event.getSequence());
+        return narrowed;
+    }
+
+    private boolean matches(CatalogueItem item) {
+        if (!isEmpty(skuPrefixes)
+            && (item.getSku() == null || skuPrefixes.stream().noneMatch(item.getSku()::startsWith))) {
+            return false;
+        }
+
+        if (!isEmpty(categories)
+            && item.getCategory() != null
+            && categories.stream().noneMatch(category -> category.equalsIgnoreCase(item.getCategory()))) {
+            return false;
+        }
+
+        if (item.getPrice() != null) {
+            if (minPrice != null && item.getPrice() < minPrice) {
+                return false;
+            }
+            if (maxPrice != null && item.getPrice() > maxPrice) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(Collection<?> values) {
+        return values == null || values.isEmpty();
+    }
+}
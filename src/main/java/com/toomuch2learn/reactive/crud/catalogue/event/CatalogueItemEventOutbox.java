@@ -0,0 +1,344 @@
+package com.toomuch2learn.reactive.crud.catalogue.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.OutboxProperties;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemEventRecord;
+import com.toomuch2learn.reactive.crud.catalogue.repository.CatalogueItemEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Transactional outbox for catalogue item events. Services append the event in the same transaction as the change it
+ * describes, so an event is published if and only if its change is committed. Committed events are relayed in id order
+ * to {@link CatalogueItemEventPublisher} with their id as sequence, by polling and whenever a local write commits.
+ *
+ * Ids are assigned on insert and transactions commit in any order, so a missing id is waited for up to the gap timeout
+ * before it is skipped. Skipped ids are checked again on every poll for as long as events are retained, so an event of
+ * a transaction committing after the gap timeout is still relayed, behind events with later ids. Skipped ids and events
+ * relayed late are counted as "catalogue.outbox.skipped" and "catalogue.outbox.late".
+ *
+ * Every instance relays all events from the shared table to its own subscribers, so events are delivered regardless of
+ * the instance which wrote them. Relayed events are retained for the configured retention, and subscribers resuming
+ * from an event no longer held by the event bus are replayed from the outbox.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Component
+public class CatalogueItemEventOutbox implements SmartLifecycle {
+
+    private final CatalogueItemEventRepository eventRepository;
+    private final CatalogueItemEventPublisher eventPublisher;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final OutboxProperties outboxProperties;
+    private final ObjectMapper objectMapper;
+    private final CollectionType itemsType;
+    private final DirectProcessor<Long> trigger = DirectProcessor.create();
+    private final FluxSink<Long> triggerSink = trigger.sink();
+    private final Counter skippedIds;
+    private final Counter lateEvents;
+
+    /**
+     * Id of the last event relayed, only updated by the relay
+     */
+    private volatile long position;
+
+    /**
+     * Time the relay first found the event after its position missing, null if there is no gap
+     */
+    private Instant gapSince;
+
+    /**
+     * Ids skipped by the relay with the time they were skipped, only used by the relay
+     */
+    private final NavigableMap<Long, Instant> skipped = new TreeMap<>();
+
+    private Disposable relay;
+    private Disposable purge;
+
+    CatalogueItemEventOutbox(
+        CatalogueItemEventRepository eventRepository,
+        CatalogueItemEventPublisher eventPublisher,
+        ApplicationEventPublisher applicationEventPublisher,
+        OutboxProperties outboxProperties,
+        ObjectMapper objectMapper,
+        MeterRegistry meterRegistry) {
+
+        this.eventRepository = eventRepository;
+        this.eventPublisher = eventPublisher;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.outboxProperties = outboxProperties;
+        // Absent properties are left out, as items carried by events are not complete for every event type
+        this.objectMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        this.itemsType = this.objectMapper.getTypeFactory().constructCollectionType(List.class, CatalogueItem.class);
+        this.skippedIds = Counter
+            .builder("catalogue.outbox.skipped")
+            .description("Number of event ids skipped by the relay as they were not committed within the gap timeout")
+            .register(meterRegistry);
+        this.lateEvents = Counter
+            .builder("catalogue.outbox.late")
+            .description("Number of events relayed after their id was skipped, as they were committed late")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Append event of a single item to the outbox. Should be subscribed within the transaction writing the change.
+     *
+     * @param eventType
+     * @param item
+     * @return completion once the event is written
+     */
+    public Mono<Void> append(String eventType, CatalogueItem item) {
+        return write(eventType, item);
+    }
+
+    /**
+     * Append event of items written by a bulk operation to the outbox, nothing is appended when there are no items.
+     * Should be subscribed within the transaction writing the change.
+     *
+     * @param eventType
+     * @param items
+     * @return completion once the event is written
+     */
+    public Mono<Void> append(String eventType, List<CatalogueItem> items) {
+        return items.isEmpty() ? Mono.empty() : write(eventType, items);
+    }
+
+    /**
+     * Relay committed events without waiting for the next poll
+     */
+    public void relayNow() {
+        triggerSink.next(position);
+    }
+
+    /**
+     * Subscribe to events matching a filter, resuming after the last event received by the subscriber. Events no
+     * longer held by the event bus are replayed from the outbox while they are retained, and RESYNC event is sent
+     * otherwise.
+     *
+     * @param subscriber name of the subscriber, used to tag its metrics
+     * @param filter filter applied to every event
+     * @param lastSequence sequence of the last event received, null to receive only events published from now on
+     * @return catalogueItemEvents
+     */
+    public Flux<CatalogueItemEvent> subscribe(
+        String subscriber, Supplier<CatalogueItemEventFilter> filter, Long lastSequence) {
+
+        long relayed = position;
+        if (lastSequence == null || lastSequence >= relayed || eventPublisher.canResumeAfter(lastSequence)) {
+            return eventPublisher.subscribe(subscriber, filter, lastSequence);
+        }
+
+        return eventRepository
+            .findOldestId()
+            .flatMapMany(oldest -> {
+                if (oldest == 0 || oldest > lastSequence + 1) {
+                    return eventPublisher.subscribe(subscriber, filter, lastSequence);
+                }
+
+                // Events relayed up to the position are replayed from the outbox and later ones from the event bus
+                log.debug("Replaying events {} to {} from outbox for {}", lastSequence, relayed, subscriber);
+                return replay(lastSequence, relayed)
+                    .map(this::toEvent)
+                    .concatMap(event -> Mono.justOrEmpty(filter.get().apply(event)))
+                    .concatWith(Flux.defer(() -> eventPublisher.subscribe(subscriber, filter, relayed)));
+            });
+    }
+
+    @Override
+    public void start() {
+        // Events written before this instance started are not relayed, subscribers can replay them using their id
+        Duration startupTimeout = outboxProperties.getStartupTimeout();
+        try {
+            position = eventRepository.findLatestId().blockOptional(startupTimeout).orElse(0L);
+        }
+        catch (IllegalStateException e) {
+            throw new IllegalStateException(String.format(
+                "Latest catalogue item event could not be read from outbox within %s", startupTimeout), e);
+        }
+        eventPublisher.startAfter(position);
+
+        // Ticks and triggers only signal that events may be pending, so those arriving during a relay are coalesced
+        // rather than overflowing the merge when writes commit in bursts. A failed relay is retried on the next tick,
+        // and the relay is restarted should anything else fail, so it never stops for the lifetime of the instance.
+        relay = Flux
+            .merge(
+                Flux.interval(outboxProperties.getPollInterval()).onBackpressureLatest(),
+                trigger.onBackpressureLatest())
+            .onBackpressureLatest()
+            .concatMap(tick -> relayPending()
+                .onErrorResume(e -> {
+                    log.error("Error occurred while relaying catalogue item events after {}", position, e);
+                    return Mono.empty();
+                }), 1)
+            .doOnError(e -> log.error("Restarting relay of catalogue item events after {}", position, e))
+            .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, outboxProperties.getPollInterval()))
+            .subscribe();
+
+        purge = Flux
+            .interval(outboxProperties.getPurgeInterval())
+            .concatMap(tick -> eventRepository
+                .deleteCreatedBefore(Instant.now().minus(outboxProperties.getRetention()))
+                .onErrorResume(e -> {
+                    log.error("Error occurred while purging catalogue item events", e);
+                    return Mono.empty();
+                }))
+            .subscribe(deleted -> {
+                if (deleted > 0) {
+                    log.debug("Purged {} catalogue item events past retention", deleted);
+                }
+            });
+
+        log.info("Relaying catalogue item events after {}", position);
+    }
+
+    @Override
+    public void stop() {
+        if (relay != null) {
+            relay.dispose();
+        }
+        if (purge != null) {
+            purge.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return relay != null && !relay.isDisposed();
+    }
+
+    /**
+     * Relay events committed after their id was skipped, then committed events after the position in id order, stopping
+     * at a missing id until the gap timeout elapses
+     */
+    private Mono<Void> relayPending() {
+        return relaySkipped().then(eventRepository
+            .findAfter(position, outboxProperties.getBatchSize())
+            .collectList()
+            .doOnNext(records -> {
+                for (CatalogueItemEventRecord record : records) {
+                    if (record.getId() != position + 1 && !gapTimedOut()) {
+                        return;
+                    }
+                    if (record.getId() != position + 1) {
+                        log.warn("Skipping catalogue item events {} to {} not committed within {}",
+                            position + 1, record.getId() - 1, outboxProperties.getGapTimeout());
+
+                        Instant now = Instant.now();
+                        for (long id = position + 1; id < record.getId(); id++) {
+                            skipped.put(id, now);
+                        }
+                        skippedIds.increment(record.getId() - position - 1);
+                    }
+
+                    applicationEventPublisher.publishEvent(toEvent(record));
+                    position = record.getId();
+                    gapSince = null;
+                }
+
+                if (records.size() == outboxProperties.getBatchSize()) {
+                    relayNow();
+                }
+            })
+            .then());
+    }
+
+    /**
+     * Relay events whose id was skipped and have been committed since, and stop checking ids skipped longer than the
+     * retention, as their events would have been purged anyway
+     */
+    private Mono<Void> relaySkipped() {
+        Instant expired = Instant.now().minus(outboxProperties.getRetention());
+        skipped.values().removeIf(skippedOn -> skippedOn.isBefore(expired));
+        if (skipped.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return Flux
+            .fromIterable(skipped.keySet())
+            .buffer(outboxProperties.getBatchSize())
+            .concatMap(eventRepository::findAllById)
+            .collectSortedList(Comparator.comparing(CatalogueItemEventRecord::getId))
+            .doOnNext(records -> records.forEach(record -> {
+                log.warn("Relaying catalogue item event {} committed after the gap timeout", record.getId());
+
+                applicationEventPublisher.publishEvent(toEvent(record));
+                skipped.remove(record.getId());
+                lateEvents.increment();
+            }))
+            .then();
+    }
+
+    /**
+     * Events after an id up to and including another, read a batch at a time so a subscriber far behind does not hold
+     * every event it missed at once
+     */
+    private Flux<CatalogueItemEventRecord> replay(long after, long upTo) {
+        return eventRepository
+            .findBetween(after, upTo, outboxProperties.getBatchSize())
+            .collectList()
+            .flatMapMany(records -> records.size() < outboxProperties.getBatchSize()
+                ? Flux.fromIterable(records)
+                : Flux.fromIterable(records).concatWith(Flux.defer(() ->
+                    replay(records.get(records.size() - 1).getId(), upTo))));
+    }
+
+    private boolean gapTimedOut() {
+        Instant now = Instant.now();
+        if (gapSince == null) {
+            gapSince = now;
+        }
+        return !gapSince.plus(outboxProperties.getGapTimeout()).isAfter(now);
+    }
+
+    private Mono<Void> write(String eventType, Object source) {
+        return Mono
+            .fromCallable(() -> objectMapper.writeValueAsString(source))
+            .map(payload -> new CatalogueItemEventRecord(null, eventType, payload, Instant.now()))
+            .flatMap(eventRepository::save)
+            .then();
+    }
+
+    /**
+     * Events of a single item are stored as object and events of bulk operations as array, and are published the same
+     */
+    private CatalogueItemEvent toEvent(CatalogueItemEventRecord record) {
+        try {
+            JsonNode payload = objectMapper.readTree(record.getPayload());
+            return payload.isArray()
+                ? new CatalogueItemEvent(
+                    record.getEventType(),
+                    objectMapper.<List<CatalogueItem>>convertValue(payload, itemsType),
+                    record.getId())
+                : new CatalogueItemEvent(
+                    record.getEventType(), objectMapper.treeToValue(payload, CatalogueItem.class), record.getId());
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(
+                String.format("Catalogue item event %d cannot be read from outbox", record.getId()), e);
+        }
+    }
+}
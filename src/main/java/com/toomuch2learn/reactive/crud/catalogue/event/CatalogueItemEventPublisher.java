@@ -1,51 +1,273 @@
 package com.toomuch2learn.reactive.crud.catalogue.event;
 
+import com.toomuch2learn.reactive.crud.catalogue.configuration.EventBusProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
-import org.springframework.util.ReflectionUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.function.Consumer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
- * Class to publish CatalogueItemEvent in single executor thread with events added to BlockingQueue when ever happens
- * and be emitted by FluxSink
+ * Event bus multicasting CatalogueItemEvent to any number of subscribers. Events are handed to each subscriber's own
+ * bounded buffer without waiting for it, so publishing never blocks and a slow subscriber neither stalls the others
+ * nor grows memory without bound. Subscribers are completed when the application context is closed.
+ *
+ * Every event has an increasing sequence, and the latest events are retained so subscribers can resume after the last
+ * event they received.
+ *
+ * Lag and dropped event metrics are published under "catalogue.events.subscriber", tagged by kind of subscriber and
+ * overflow strategy rather than per connection, so they do not grow a series per session. Lag is the most events
+ * buffered by any one subscriber of the kind. The number of events buffered across all subscribers is published as
+ * "catalogue.events.queue.depth".
  *
  * @author Madan Narra
  */
+@Slf4j
 @Component
-public class CatalogueItemEventPublisher implements
-    ApplicationListener<CatalogueItemEvent>,
-    Consumer<FluxSink<CatalogueItemEvent>> {
+public class CatalogueItemEventPublisher implements ApplicationListener<CatalogueItemEvent>, DisposableBean {
+
+    private final DirectProcessor<CatalogueItemEvent> processor;
+    private final FluxSink<CatalogueItemEvent> sink;
+    private final EventBusProperties eventBusProperties;
+    private final MeterRegistry meterRegistry;
+    private final EventHistory history;
+    private final Set<EventSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Map<List<String>, Counter> dropped = new ConcurrentHashMap<>();
 
-    private final Executor executor;
-    private final BlockingQueue<CatalogueItemEvent> queue;
+    // Guarded by this, along with history
+    private long sequence;
 
-    CatalogueItemEventPublisher() {
-        this.executor = Executors.newSingleThreadExecutor();
-        this.queue = new LinkedBlockingQueue<>();
+    CatalogueItemEventPublisher(EventBusProperties eventBusProperties, MeterRegistry meterRegistry) {
+        this.processor = DirectProcessor.create();
+        this.sink = processor.sink();
+        this.eventBusProperties = eventBusProperties;
+        this.meterRegistry = meterRegistry;
+        this.history = new EventHistory(eventBusProperties.getReplaySize());
+
+        Gauge.builder("catalogue.events.subscribers", processor, DirectProcessor::downstreamCount)
+            .description("Number of subscribers to catalogue item events")
+            .register(meterRegistry);
+        Gauge.builder("catalogue.events.queue.depth", subscriptions, CatalogueItemEventPublisher::queueDepth)
+            .description("Number of events published but not yet consumed, across all subscribers")
+            .register(meterRegistry);
     }
 
-    @Override
-    public void onApplicationEvent(CatalogueItemEvent event) {
-        this.queue.offer(event);
+    /**
+     * Subscribe to events with the configured overflow strategy
+     *
+     * @param subscriber name of the subscriber prefixed by its kind, such as "ws-" or "sse-", used to tag its metrics
+     * @return catalogueItemEvents
+     */
+    public Flux<CatalogueItemEvent> subscribe(String subscriber) {
+        return subscribe(subscriber, eventBusProperties.getOverflowStrategy());
+    }
+
+    /**
+     * Subscribe to events published from the time of subscription
+     *
+     * @param subscriber name of the subscriber prefixed by its kind, such as "ws-" or "sse-", used to tag its metrics
+     * @param overflowStrategy strategy applied when the subscriber does not keep up
+     * @return catalogueItemEvents
+     */
+    public Flux<CatalogueItemEvent> subscribe(String subscriber, SubscriberOverflowStrategy overflowStrategy) {
+        CatalogueItemEventFilter all = CatalogueItemEventFilter.all();
+        return subscribe(subscriber, overflowStrategy, () -> all);
+    }
+
+    /**
+     * Subscribe to events matching a filter with the configured overflow strategy. Filter is looked up for every event,
+     * so subscribers can change it while subscribed.
+     *
+     * @param subscriber name of the subscriber prefixed by its kind, such as "ws-" or "sse-", used to tag its metrics
+     * @param filter supplier of the filter to apply
+     * @return catalogueItemEvents
+     */
+    public Flux<CatalogueItemEvent> subscribe(String subscriber, Supplier<CatalogueItemEventFilter> filter) {
+        return subscribe(subscriber, eventBusProperties.getOverflowStrategy(), filter);
+    }
+
+    /**
+     * Subscribe to events matching a filter, published from the time of subscription
+     *
+     * @param subscriber name of the subscriber prefixed by its kind, such as "ws-" or "sse-", used to tag its metrics
+     * @param overflowStrategy strategy applied when the subscriber does not keep up
+     * @param filter supplier of the filter to apply
+     * @return catalogueItemEvents
+     */
+    public Flux<CatalogueItemEvent> subscribe(
+        String subscriber, SubscriberOverflowStrategy overflowStrategy, Supplier<CatalogueItemEventFilter> filter) {
+
+        return subscribe(subscriber, overflowStrategy, filter, null);
+    }
+
+    /**
+     * Subscribe to events matching a filter, resuming after the last event received by the subscriber. Retained events
+     * published after it are replayed before live events, without gaps or duplicates. When they are no longer
+     * retained, a RESYNC event is sent first and events are received from the time of subscription.
+     *
+     * @param subscriber name of the subscriber prefixed by its kind, such as "ws-" or "sse-", used to tag its metrics
+     * @param filter supplier of the filter to apply
+     * @param lastSequence sequence of the last event received, null to receive events from the time of subscription
+     * @return catalogueItemEvents
+     */
+    public Flux<CatalogueItemEvent> subscribe(
+        String subscriber, Supplier<CatalogueItemEventFilter> filter, Long lastSequence) {
+
+        return subscribe(subscriber, eventBusProperties.getOverflowStrategy(), filter, lastSequence);
+    }
+
+    private Flux<CatalogueItemEvent> subscribe(
+        String subscriber,
+        SubscriberOverflowStrategy overflowStrategy,
+        Supplier<CatalogueItemEventFilter> filter,
+        Long lastSequence) {
+
+        return Flux.create(emitter -> {
+            EventSubscription subscription;
+            Disposable upstream;
+
+            // Replayed events are collected and live events subscribed while no event is being published
+            synchronized (this) {
+                List<CatalogueItemEvent> replay = lastSequence != null
+                    ? replay(filter.get(), lastSequence)
+                    : Collections.emptyList();
+
+                subscription = new EventSubscription(
+                    subscriber,
+                    overflowStrategy,
+                    eventBusProperties.getBufferSize() + replay.size(),
+                    emitter,
+                    filter,
+                    Schedulers.parallel(),
+                    droppedCounter(EventSubscription.kindOf(subscriber), overflowStrategy));
+                subscription.replay(replay);
+                subscriptions.add(subscription);
+
+                upstream = processor.subscribe(
+                    subscription::offer,
+                    e -> emitter.error(e),
+                    subscription::complete);
+            }
+
+            emitter.onRequest(n -> subscription.drain());
+            emitter.onDispose(() -> {
+                upstream.dispose();
+                subscriptions.remove(subscription);
+                subscription.dispose();
+            });
+        });
+    }
+
+    /**
+     * Check if subscribers can resume after the sequence from the retained events
+     *
+     * @param lastSequence sequence of the last event received by the subscriber
+     * @return true if all events after it are retained
+     */
+    public synchronized boolean canResumeAfter(long lastSequence) {
+        return history.canResumeAfter(lastSequence, sequence);
+    }
+
+    /**
+     * Set sequence of the latest event published before this instance started, so subscribers which received it can
+     * resume from it
+     *
+     * @param latestSequence
+     */
+    public synchronized void startAfter(long latestSequence) {
+        sequence = Math.max(sequence, latestSequence);
     }
 
     @Override
-    public void accept(FluxSink<CatalogueItemEvent> sink) {
-        this.executor.execute(() -> {
-            while (true) {
-                try {
-                    CatalogueItemEvent event = queue.take();
-                    sink.next(event);
-                } catch (InterruptedException e) {
-                    ReflectionUtils.rethrowRuntimeException(e);
-                }
+    public void onApplicationEvent(CatalogueItemEvent event) {
+        synchronized (this) {
+            // Events relayed from the outbox carry their change sequence, others are numbered as published
+            if (event.getSequence() == 0) {
+                event.setSequence(sequence + 1);
             }
+            // Events committed to the outbox after later ones were relayed are behind the sequence. They are only
+            // delivered to current subscribers, as retained events must be in sequence for subscribers to resume.
+            if (event.getSequence() > sequence) {
+                sequence = event.getSequence();
+                history.add(event);
+            }
+            sink.next(event);
+        }
+    }
+
+    private List<CatalogueItemEvent> replay(CatalogueItemEventFilter filter, long lastSequence) {
+        if (!history.canResumeAfter(lastSequence, sequence)) {
+            log.debug("Events after {} are no longer retained, requesting subscriber to resync", lastSequence);
+
+            CatalogueItemEvent resync
+                = new CatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_RESYNC, Collections.emptyList());
+            resync.setSequence(sequence);
+            return Collections.singletonList(resync);
+        }
+
+        return history
+            .after(lastSequence)
+            .stream()
+            .map(filter::apply)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Dropped counter shared by subscribers of a kind and strategy, registered along with their lag on first use
+     */
+    private Counter droppedCounter(String kind, SubscriberOverflowStrategy overflowStrategy) {
+        return dropped.computeIfAbsent(Arrays.asList(kind, overflowStrategy.name()), key -> {
+            Tags tags = Tags.of("kind", kind, "strategy", overflowStrategy.name());
+
+            Gauge.builder("catalogue.events.subscriber.lag", subscriptions, s -> maxLag(s, kind, overflowStrategy))
+                .description("Most events buffered but not yet consumed by a subscriber")
+                .tags(tags)
+                .register(meterRegistry);
+
+            return Counter.builder("catalogue.events.subscriber.dropped")
+                .description("Number of events dropped or conflated as subscribers did not keep up")
+                .tags(tags)
+                .register(meterRegistry);
         });
     }
+
+    private static double maxLag(
+        Set<EventSubscription> subscriptions, String kind, SubscriberOverflowStrategy overflowStrategy) {
+
+        return subscriptions
+            .stream()
+            .filter(s -> s.getKind().equals(kind) && s.getOverflowStrategy() == overflowStrategy)
+            .mapToInt(EventSubscription::size)
+            .max()
+            .orElse(0);
+    }
+
+    private static double queueDepth(Set<EventSubscription> subscriptions) {
+        return subscriptions.stream().mapToInt(EventSubscription::size).sum();
+    }
+
+    @Override
+    public void destroy() {
+        log.info("Completing {} catalogue item event subscribers", processor.downstreamCount());
+        sink.complete();
+    }
 }
@@ -0,0 +1,67 @@
+package com.toomuch2learn.reactive.crud.catalogue.event;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ring buffer retaining the latest published events, so subscribers reconnecting with the sequence of the last event
+ * they received can resume from it. Not thread safe, callers synchronize with publishing.
+ *
+ * @author Madan Narra
+ */
+class EventHistory {
+
+    private final CatalogueItemEvent[] events;
+    private int next;
+    private int size;
+
+    EventHistory(int capacity) {
+        this.events = new CatalogueItemEvent[capacity];
+    }
+
+    void add(CatalogueItemEvent event) {
+        if (events.length == 0) {
+            return;
+        }
+
+        events[next] = event;
+        next = (next + 1) % events.length;
+        size = Math.min(size + 1, events.length);
+    }
+
+    /**
+     * Check if all events published after the sequence are retained
+     *
+     * @param sequence sequence of the last event received by the subscriber
+     * @param latest sequence of the last event published
+     * @return true if subscriber can resume without missing events
+     */
+    boolean canResumeAfter(long sequence, long latest) {
+        if (sequence > latest) {
+            // Subscriber has seen events from before a restart, when sequence started over
+            return false;
+        }
+        return sequence == latest || (size > 0 && sequence >= oldest().getSequence() - 1);
+    }
+
+    /**
+     * Get retained events published after the sequence, oldest first
+     *
+     * @param sequence
+     * @return events
+     */
+    List<CatalogueItemEvent> after(long sequence) {
+        List<CatalogueItemEvent> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            CatalogueItemEvent event = events[(next - size + i + events.length) % events.length];
+            if (event.getSequence() > sequence) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    private CatalogueItemEvent oldest() {
+        return events[(next - size + events.length) % events.length];
+    }
+}
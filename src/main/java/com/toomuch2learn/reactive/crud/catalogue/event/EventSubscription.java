@@ -0,0 +1,192 @@
+package com.toomuch2learn.reactive.crud.catalogue.event;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded buffer between the event bus and a single subscriber. Events are offered by the publishing thread and
+ * drained on the subscriber's own worker as the subscriber requests them, so a slow subscriber only ever affects
+ * itself. Only events matching the subscriber's current filter are buffered. Events which do not fit the buffer are
+ * handled as per the subscriber's overflow strategy, counting them on the dropped counter shared by subscribers of
+ * the same kind and strategy.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+class EventSubscription {
+
+    private final String subscriber;
+    private final SubscriberOverflowStrategy overflowStrategy;
+    private final int bufferSize;
+    private final FluxSink<CatalogueItemEvent> emitter;
+    private final Supplier<CatalogueItemEventFilter> filter;
+    private final Scheduler.Worker worker;
+    private final Counter dropped;
+
+    // Keyed by SKU when conflating, so a newer event for a buffered SKU replaces the older one
+    private final LinkedHashMap<Object, CatalogueItemEvent> buffer = new LinkedHashMap<>();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile boolean overflowed;
+    private volatile boolean done;
+
+    EventSubscription(
+        String subscriber,
+        SubscriberOverflowStrategy overflowStrategy,
+        int bufferSize,
+        FluxSink<CatalogueItemEvent> emitter,
+        Supplier<CatalogueItemEventFilter> filter,
+        Scheduler scheduler,
+        Counter dropped) {
+
+        this.subscriber = subscriber;
+        this.overflowStrategy = overflowStrategy;
+        this.bufferSize = bufferSize;
+        this.emitter = emitter;
+        this.filter = filter;
+        this.worker = scheduler.createWorker();
+        this.dropped = dropped;
+    }
+
+    /**
+     * Kind of the subscriber, taken from the prefix of its name such as "ws" or "sse", to tag metrics without creating
+     * a series per connection
+     */
+    String getKind() {
+        return kindOf(subscriber);
+    }
+
+    static String kindOf(String subscriber) {
+        int separator = subscriber.indexOf('-');
+        return separator > 0 ? subscriber.substring(0, separator) : subscriber;
+    }
+
+    SubscriberOverflowStrategy getOverflowStrategy() {
+        return overflowStrategy;
+    }
+
+    void offer(CatalogueItemEvent published) {
+        // Filter before buffering, so events the subscriber is not interested in neither take space nor get encoded
+        CatalogueItemEvent event = filter.get().apply(published);
+        if (event == null) {
+            return;
+        }
+
+        synchronized (buffer) {
+            Object key = keyOf(event);
+            if (buffer.remove(key) != null) {
+                dropped.increment();
+            }
+            else if (buffer.size() >= bufferSize) {
+                if (overflowStrategy == SubscriberOverflowStrategy.DISCONNECT) {
+                    overflowed = true;
+                }
+                else {
+                    Iterator<CatalogueItemEvent> oldest = buffer.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                    dropped.increment();
+                }
+            }
+
+            if (!overflowed) {
+                buffer.put(key, event);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Buffer events published before the subscription, without applying filter or capacity
+     *
+     * @param events
+     */
+    void replay(List<CatalogueItemEvent> events) {
+        synchronized (buffer) {
+            events.forEach(event -> buffer.put(keyOf(event), event));
+        }
+    }
+
+    void complete() {
+        done = true;
+        drain();
+    }
+
+    void drain() {
+        if (wip.getAndIncrement() == 0) {
+            worker.schedule(this::drainLoop);
+        }
+    }
+
+    void dispose() {
+        worker.dispose();
+    }
+
+    private void drainLoop() {
+        int missed = 1;
+        for (;;) {
+            if (overflowed) {
+                log.warn("Disconnecting subscriber {} as it did not keep up with {} buffered events", subscriber, bufferSize);
+                emitter.error(Exceptions.failWithOverflow(
+                    String.format("Subscriber %s did not keep up with catalogue item events", subscriber)));
+                return;
+            }
+
+            while (emitter.requestedFromDownstream() > 0 && !emitter.isCancelled()) {
+                CatalogueItemEvent event = poll();
+                if (event == null) {
+                    break;
+                }
+                emitter.next(event);
+            }
+
+            if (done && size() == 0) {
+                emitter.complete();
+                return;
+            }
+
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private CatalogueItemEvent poll() {
+        synchronized (buffer) {
+            Iterator<CatalogueItemEvent> oldest = buffer.values().iterator();
+            if (!oldest.hasNext()) {
+                return null;
+            }
+            CatalogueItemEvent event = oldest.next();
+            oldest.remove();
+            return event;
+        }
+    }
+
+    int size() {
+        synchronized (buffer) {
+            return buffer.size();
+        }
+    }
+
+    /**
+     * Events are only conflated when they are for a single SKU, as events published by bulk operations span many
+     */
+    private Object keyOf(CatalogueItemEvent event) {
+        if (overflowStrategy == SubscriberOverflowStrategy.CONFLATE_BY_SKU && event.getCatalogueItems().size() == 1) {
+            return event.getCatalogueItems().get(0).getSku();
+        }
+        return new Object();
+    }
+}
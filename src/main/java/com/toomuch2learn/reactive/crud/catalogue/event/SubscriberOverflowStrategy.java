@@ -0,0 +1,23 @@
+package com.toomuch2learn.reactive.crud.catalogue.event;
+
+/**
+ * What to do when events are published faster than a subscriber consumes them and its buffer is full
+ */
+public enum SubscriberOverflowStrategy {
+
+    /**
+     * Drop the oldest buffered event to make room for the new one
+     */
+    DROP_OLDEST,
+
+    /**
+     * Replace a buffered event for the same SKU with the new one, so only the latest state of each SKU is kept.
+     * Oldest event is dropped when the buffer is full of distinct SKUs.
+     */
+    CONFLATE_BY_SKU,
+
+    /**
+     * Terminate the subscriber with an overflow error, disconnecting the client
+     */
+    DISCONNECT
+}
@@ -26,4 +26,29 @@ public class ErrorCodes {
      * Error code for Constraint check exceptions
      */
     public static final int ERR_CONSTRAINT_CHECK_FAILED = 1040;
+
+    /**
+     * Error code for data integrity violations such as duplicate SKU
+     */
+    public static final int ERR_DATA_INTEGRITY_VIOLATION = 1050;
+
+    /**
+     * Error code for conditional requests whose precondition does not match, such as stale If-Match version
+     */
+    public static final int ERR_PRECONDITION_FAILED = 1060;
+
+    /**
+     * Error code for inventory adjustments which would take inventory below zero
+     */
+    public static final int ERR_INSUFFICIENT_INVENTORY = 1070;
+
+    /**
+     * Error code for uploads exceeding the allowed size
+     */
+    public static final int ERR_PAYLOAD_TOO_LARGE = 1080;
+
+    /**
+     * Error code for requests rejected as too many of their kind are in progress
+     */
+    public static final int ERR_TOO_MANY_REQUESTS = 1090;
 }
@@ -1,6 +1,7 @@
 package com.toomuch2learn.reactive.crud.catalogue.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -30,6 +31,132 @@ public class ExceptionHandlerController {
         return Mono.just(response);
     }
 
+    /**
+     * Handle conditional update failures when Catalogue Item was modified after the version provided in If-Match
+     * @param e
+     * @return errorResponse
+     */
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ResponseBody
+    public Mono<ErrorResponse> onPreconditionFailedException(PreconditionFailedException e) {
+        log.error("Precondition failed exception occurred: {} ", e.getMessage());
+
+        ErrorResponse error = new ErrorResponse();
+        error.getErrors().add(
+            new Error(
+                ErrorCodes.ERR_PRECONDITION_FAILED,
+                "Precondition failed",
+                e.getMessage()));
+
+        return Mono.just(error);
+    }
+
+    /**
+     * Handle inventory adjustments rejected as the Catalogue Item does not have enough inventory
+     * @param e
+     * @return errorResponse
+     */
+    @ExceptionHandler(InsufficientInventoryException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ResponseBody
+    public Mono<ErrorResponse> onInsufficientInventoryException(InsufficientInventoryException e) {
+        log.error("Insufficient inventory exception occurred: {} ", e.getMessage());
+
+        ErrorResponse error = new ErrorResponse();
+        error.getErrors().add(
+            new Error(
+                ErrorCodes.ERR_INSUFFICIENT_INVENTORY,
+                "Insufficient inventory",
+                e.getMessage()));
+
+        return Mono.just(error);
+    }
+
+    /**
+     * Handle uploads rejected as they exceed the allowed size
+     * @param e
+     * @return errorResponse
+     */
+    @ExceptionHandler(PayloadTooLargeException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    @ResponseBody
+    public Mono<ErrorResponse> onPayloadTooLargeException(PayloadTooLargeException e) {
+        log.error("Payload too large exception occurred: {} ", e.getMessage());
+
+        ErrorResponse error = new ErrorResponse();
+        error.getErrors().add(
+            new Error(
+                ErrorCodes.ERR_PAYLOAD_TOO_LARGE,
+                "Payload too large",
+                e.getMessage()));
+
+        return Mono.just(error);
+    }
+
+    /**
+     * Handle requests rejected as too many of their kind are in progress
+     * @param e
+     * @return errorResponse
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    @ResponseBody
+    public Mono<ErrorResponse> onTooManyRequestsException(TooManyRequestsException e) {
+        log.error("Too many requests exception occurred: {} ", e.getMessage());
+
+        ErrorResponse error = new ErrorResponse();
+        error.getErrors().add(
+            new Error(
+                ErrorCodes.ERR_TOO_MANY_REQUESTS,
+                "Too many requests",
+                e.getMessage()));
+
+        return Mono.just(error);
+    }
+
+    /**
+     * Handle invalid request parameters which cannot be validated through bean constraints
+     * @param e
+     * @return errorResponse
+     */
+    @ExceptionHandler(InvalidRequestException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ResponseBody
+    public Mono<ErrorResponse> onInvalidRequestException(InvalidRequestException e) {
+        log.error("Invalid request exception occurred: {} ", e.getMessage());
+
+        ErrorResponse error = new ErrorResponse();
+        error.getErrors().add(
+            new Error(
+                ErrorCodes.ERR_REQUEST_PARAMS_BODY_VALIDATION_FAILED,
+                "Invalid Request",
+                e.getMessage()));
+
+        return Mono.just(error);
+    }
+
+    /**
+     * Handle data integrity violations such as creating Catalogue Item with a SKU which already exists
+     * @param e
+     * @return errorResponse
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ResponseBody
+    public Mono<ErrorResponse> onDataIntegrityViolationException(DataIntegrityViolationException e) {
+        log.error("Data integrity violation exception occurred: {} ", e.getMessage());
+
+        ErrorResponse error = new ErrorResponse();
+        error.getErrors().add(
+            new Error(
+                ErrorCodes.ERR_DATA_INTEGRITY_VIOLATION,
+                "Conflict",
+                "Catalogue Item conflicts with an existing item"));
+
+        return Mono.just(error);
+    }
+
     /**
      * Handle request Validation failures
      * @param e
@@ -0,0 +1,18 @@
+package com.toomuch2learn.reactive.crud.catalogue.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class InvalidRequestException extends RuntimeException{
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidRequestException(String message){
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,14 @@
+package com.toomuch2learn.reactive.crud.catalogue.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyRequestsException extends RuntimeException{
+
+    private static final long serialVersionUID = 1L;
+
+    public TooManyRequestsException(String message){
+        super(message);
+    }
+}
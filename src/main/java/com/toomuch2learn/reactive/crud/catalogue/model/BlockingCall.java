@@ -0,0 +1,28 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Blocking call detected on a non-blocking thread, identified by the blocking method and the application frames
+ * calling it
+ *
+ * @author Madan Narra
+ */
+@Data
+public class BlockingCall {
+
+    private String method;
+
+    private List<String> stackTrace;
+
+    private String lastThread;
+
+    private long count;
+
+    private Instant firstSeen;
+
+    private Instant lastSeen;
+}
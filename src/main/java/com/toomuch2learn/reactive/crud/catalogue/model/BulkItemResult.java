@@ -0,0 +1,36 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Outcome of a single item processed through bulk create, update or delete
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkItemResult {
+
+    public enum Status {
+        CREATED,
+        UPDATED,
+        DELETED,
+        NOT_FOUND,
+        INVALID,
+        FAILED
+    }
+
+    private String sku;
+
+    @NonNull private Status status;
+
+    private Long id;
+
+    private String message;
+
+    public static BulkItemResult of(String sku, Status status) {
+        return new BulkItemResult(sku, status, null, null);
+    }
+}
@@ -3,6 +3,7 @@ package com.toomuch2learn.reactive.crud.catalogue.model;
 import com.toomuch2learn.reactive.crud.catalogue.validation.IEnumValidator;
 import lombok.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -58,4 +59,11 @@ public class CatalogueItem {
 
     @Column("UPDATED_ON")
     private Instant updatedOn;
+
+    /**
+     * Incremented on every update and exposed as ETag, to detect concurrent modifications
+     */
+    @Version
+    @Column("VERSION")
+    private Long version;
 }
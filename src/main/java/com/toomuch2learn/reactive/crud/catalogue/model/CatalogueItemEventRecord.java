@@ -0,0 +1,37 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * Catalogue item event written to the outbox in the same transaction as the change it describes. Id is the change
+ * sequence exposed to event consumers.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("CATALOGUE_ITEM_EVENTS")
+public class CatalogueItemEventRecord {
+
+    @Id
+    @Column("ID")
+    private Long id;
+
+    @Column("EVENT_TYPE")
+    private String eventType;
+
+    /**
+     * Catalogue items of the event as JSON array
+     */
+    @Column("PAYLOAD")
+    private String payload;
+
+    @Column("CREATED_ON")
+    private Instant createdOn;
+}
@@ -0,0 +1,50 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * Image of a Catalogue Item, stored by {@link com.toomuch2learn.reactive.crud.catalogue.service.FileStorageService}
+ * and mapped to the item by SKU. Removed along with the item.
+ */
+@Data
+@NoArgsConstructor
+@Table("CATALOGUE_ITEM_IMAGES")
+public class CatalogueItemImage {
+
+    @Id
+    @JsonIgnore
+    @Column("ID")
+    private Long id;
+
+    @Column("SKU_NUMBER")
+    private String sku;
+
+    /**
+     * Name of the file in the storage location, not exposed to clients
+     */
+    @JsonIgnore
+    @Column("FILE_NAME")
+    private String fileName;
+
+    @Column("CONTENT_TYPE")
+    private String contentType;
+
+    @Column("CONTENT_LENGTH")
+    private Long contentLength;
+
+    /**
+     * Hex encoded SHA-256 of the image, used as its ETag
+     */
+    @Column("CHECKSUM")
+    private String checksum;
+
+    @Column("UPLOADED_ON")
+    private Instant uploadedOn;
+}
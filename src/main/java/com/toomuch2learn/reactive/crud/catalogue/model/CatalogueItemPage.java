@@ -0,0 +1,22 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+import java.util.List;
+
+/**
+ * Page of Catalogue Items along with the opaque cursor to be passed back to fetch the next page. Cursor will be null
+ * when there are no more items to be fetched.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogueItemPage {
+
+    @NonNull private List<CatalogueItem> items;
+
+    private String nextCursor;
+}
@@ -0,0 +1,28 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalogue Items matching a search, best match first, along with the total number of matching items and the number
+ * of matching items in each category
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogueSearchResult {
+
+    @NonNull private List<CatalogueItem> items;
+
+    private long total;
+
+    /**
+     * Number of items matching the query in each category having matches, irrespective of the category searched
+     */
+    @NonNull private Map<String, Long> categories;
+}
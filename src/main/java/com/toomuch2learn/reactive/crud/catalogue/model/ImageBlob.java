@@ -0,0 +1,34 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+/**
+ * Content addressed file in the image store, shared by every Catalogue Item image with the same checksum
+ */
+@Data
+@NoArgsConstructor
+@Table("IMAGE_BLOBS")
+public class ImageBlob {
+
+    /**
+     * Hex encoded SHA-256 of the content, which is also its address in the store
+     */
+    @Id
+    @Column("CHECKSUM")
+    private String checksum;
+
+    @Column("CONTENT_LENGTH")
+    private Long contentLength;
+
+    /**
+     * Last time the content was stored, blobs are not collected within the grace period from it
+     */
+    @Column("STORED_ON")
+    private Instant storedOn;
+}
@@ -0,0 +1,33 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of a Catalogue Items import. Only counts and a bounded number of errors are retained, so the summary stays
+ * the same size irrespective of number of items imported.
+ */
+@Data
+@NoArgsConstructor
+public class ImportSummary {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LineError {
+
+        private long line;
+        private String sku;
+        private String message;
+    }
+
+    private long received;
+    private long created;
+    private long rejected;
+
+    private List<LineError> errors = new ArrayList<>();
+}
@@ -0,0 +1,22 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Relative change to the inventory of a Catalogue Item. SKU is taken from the path when a single item is adjusted and
+ * is required when adjustments are sent in batch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryAdjustment {
+
+    private String sku;
+
+    @NotNull(message = "Delta cannot be null or empty")
+    private Integer delta;
+}
@@ -0,0 +1,36 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * Outcome of a single adjustment processed through batch inventory adjustment. Inventory is the level once all
+ * adjustments in the chunk are applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryAdjustmentResult {
+
+    public enum Status {
+        ADJUSTED,
+        NOT_FOUND,
+        INSUFFICIENT_INVENTORY,
+        INVALID,
+        FAILED
+    }
+
+    private String sku;
+
+    @NonNull private Status status;
+
+    private Integer inventory;
+
+    private String message;
+
+    public static InventoryAdjustmentResult of(String sku, Status status) {
+        return new InventoryAdjustmentResult(sku, status, null, null);
+    }
+}
@@ -0,0 +1,18 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Inventory of a Catalogue Item right after it was adjusted
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryLevel {
+
+    private String sku;
+
+    private Integer inventory;
+}
@@ -0,0 +1,28 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Time taken by an operator of a profiled pipeline from subscription until it terminated
+ *
+ * @author Madan Narra
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OperatorTiming {
+
+    private String operation;
+
+    private String operator;
+
+    private long count;
+
+    private double meanMillis;
+
+    private double maxMillis;
+
+    private double totalMillis;
+}
@@ -0,0 +1,20 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+import javax.validation.constraints.NotEmpty;
+
+/**
+ * Reference to a Catalogue Item by SKU, used where the full item is not needed such as bulk delete
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SkuReference {
+
+    @NotEmpty(message = "SKU cannot be null or empty")
+    @NonNull private String sku;
+}
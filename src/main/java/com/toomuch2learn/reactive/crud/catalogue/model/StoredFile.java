@@ -0,0 +1,20 @@
+package com.toomuch2learn.reactive.crud.catalogue.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * File written to the storage location, with its size and checksum computed while it was written
+ */
+@Data
+@AllArgsConstructor
+public class StoredFile {
+
+    private String fileName;
+    private long contentLength;
+
+    /**
+     * Hex encoded SHA-256 of the file content
+     */
+    private String checksum;
+}
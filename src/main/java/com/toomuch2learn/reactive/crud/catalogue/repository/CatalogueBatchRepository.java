@@ -0,0 +1,278 @@
+package com.toomuch2learn.reactive.crud.catalogue.repository;
+
+import com.toomuch2learn.reactive.crud.catalogue.configuration.Untimed;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.model.InventoryAdjustment;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.springframework.data.r2dbc.connectionfactory.ConnectionFactoryUtils;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.data.r2dbc.core.ReactiveDataAccessStrategy;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Repository to write Catalogue Items in batches. Each call is sent as a single statement with one binding per item
+ * using {@link Statement#add()}, so a chunk of items costs one round trip instead of one per item. Also streams all
+ * Catalogue Items with a fetch size, which derived queries do not expose.
+ *
+ * Connections are obtained through {@link ConnectionFactoryUtils}, so batches participate in the transaction
+ * started by the caller.
+ *
+ * @author Madan Narra
+ */
+@Repository
+public class CatalogueBatchRepository {
+
+    private static final String INSERT_ITEMS =
+        "INSERT INTO CATALOGUE_ITEMS(SKU_NUMBER, ITEM_NAME, DESCRIPTION, CATEGORY, PRICE, INVENTORY, CREATED_ON) " +
+        "VALUES($1, $2, $3, $4, $5, $6, $7)";
+
+    private static final String UPDATE_ITEMS_BY_SKU =
+        "UPDATE CATALOGUE_ITEMS SET ITEM_NAME = $1, DESCRIPTION = $2, PRICE = $3, INVENTORY = $4, UPDATED_ON = $5, " +
+        "VERSION = VERSION + 1 WHERE SKU_NUMBER = $6";
+
+    private static final String ADJUST_INVENTORY_BY_SKU =
+        "UPDATE CATALOGUE_ITEMS SET INVENTORY = INVENTORY + $1, UPDATED_ON = $2, VERSION = VERSION + 1 " +
+        "WHERE SKU_NUMBER = $3 AND CAST(INVENTORY AS BIGINT) + $1 BETWEEN 0 AND 2147483647";
+
+    private static final String SELECT_INVENTORY_BY_SKUS =
+        "SELECT SKU_NUMBER, INVENTORY FROM CATALOGUE_ITEMS WHERE SKU_NUMBER IN (%s)";
+
+    private static final String SELECT_ITEMS_BY_SKUS =
+        "SELECT * FROM CATALOGUE_ITEMS WHERE SKU_NUMBER IN (%s)";
+
+    private static final String SELECT_ITEMS_ORDER_BY_NAME =
+        "SELECT * FROM CATALOGUE_ITEMS ORDER BY ITEM_NAME, ID";
+
+    private static final String COUNT_ITEMS_BY_CATEGORY =
+        "SELECT CATEGORY, COUNT(*) AS ITEMS FROM CATALOGUE_ITEMS GROUP BY CATEGORY";
+
+    private static final String DELETE_ITEMS_BY_SKU =
+        "DELETE FROM CATALOGUE_ITEMS WHERE SKU_NUMBER = $1";
+
+    private final ConnectionFactory connectionFactory;
+    private final R2dbcConverter converter;
+
+    CatalogueBatchRepository(ConnectionFactory connectionFactory, ReactiveDataAccessStrategy dataAccessStrategy) {
+        this.connectionFactory = connectionFactory;
+        this.converter = dataAccessStrategy.getConverter();
+    }
+
+    /**
+     * Insert items in a single batch
+     *
+     * @param items
+     * @return generated ids in the same order as the items
+     */
+    public Flux<Long> insertAll(List<CatalogueItem> items) {
+        return execute(
+            connection -> connection.createStatement(INSERT_ITEMS).returnGeneratedValues("ID"),
+            items,
+            (statement, item) -> statement
+                .bind(0, item.getSku())
+                .bind(1, item.getName())
+                .bind(2, item.getDescription())
+                .bind(3, item.getCategory())
+                .bind(4, item.getPrice())
+                .bind(5, item.getInventory())
+                .bind(6, item.getCreatedOn()),
+            result -> Flux.from(result.map((row, metadata) -> ((Number) row.get("ID")).longValue())));
+    }
+
+    /**
+     * Update items identified by SKU in a single batch
+     *
+     * @param items
+     * @return number of rows updated for each item, in the same order as the items
+     */
+    public Flux<Integer> updateAllBySku(List<CatalogueItem> items) {
+        return execute(
+            connection -> connection.createStatement(UPDATE_ITEMS_BY_SKU),
+            items,
+            (statement, item) -> statement
+                .bind(0, item.getName())
+                .bind(1, item.getDescription())
+                .bind(2, item.getPrice())
+                .bind(3, item.getInventory())
+                .bind(4, item.getUpdatedOn() != null ? item.getUpdatedOn() : Instant.now())
+                .bind(5, item.getSku()),
+            result -> Flux.from(result.getRowsUpdated()));
+    }
+
+    /**
+     * Adjust inventory of items identified by SKU in a single batch. Adjustments which would take inventory below zero
+     * or above the largest INTEGER are not applied.
+     *
+     * @param adjustments
+     * @return number of rows updated for each adjustment, in the same order as the adjustments
+     */
+    public Flux<Integer> adjustAllInventoryBySku(List<InventoryAdjustment> adjustments) {
+        Instant now = Instant.now();
+
+        return execute(
+            connection -> connection.createStatement(ADJUST_INVENTORY_BY_SKU),
+            adjustments,
+            (statement, adjustment) -> statement
+                .bind(0, adjustment.getDelta())
+                .bind(1, now)
+                .bind(2, adjustment.getSku()),
+            result -> Flux.from(result.getRowsUpdated()));
+    }
+
+    /**
+     * Find inventory of items identified by SKU with a single statement
+     *
+     * @param skus
+     * @return inventory by SKU for the items which exist
+     */
+    public Mono<Map<String, Integer>> findInventoryBySku(Collection<String> skus) {
+        return select(
+            SELECT_INVENTORY_BY_SKUS,
+            skus,
+            (row, metadata) -> new AbstractMap.SimpleEntry<>(
+                row.get("SKU_NUMBER", String.class), ((Number) row.get("INVENTORY")).intValue()))
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * Find items identified by SKU with a single statement
+     *
+     * @param skus
+     * @return catalogueItems which exist, in no particular order
+     */
+    public Flux<CatalogueItem> findAllBySku(Collection<String> skus) {
+        return select(
+            SELECT_ITEMS_BY_SKUS,
+            skus,
+            (row, metadata) -> converter.read(CatalogueItem.class, row, metadata));
+    }
+
+    /**
+     * Stream all items sorted by name and id. Rows are fetched from the cursor fetchSize at a time as they are
+     * requested, on drivers supporting it, so a slow subscriber holds back the query instead of buffering the table.
+     *
+     * @param fetchSize number of rows fetched per round trip
+     * @return catalogueItems
+     */
+    @Untimed
+    public Flux<CatalogueItem> streamAll(int fetchSize) {
+        return Flux.usingWhen(
+            ConnectionFactoryUtils.getConnection(connectionFactory),
+            connection -> Flux
+                .from(connection.createStatement(SELECT_ITEMS_ORDER_BY_NAME).fetchSize(fetchSize).execute())
+                .concatMap(result -> result.map((row, metadata) -> converter.read(CatalogueItem.class, row, metadata))),
+            this::closeConnection);
+    }
+
+    /**
+     * Count items by category with a single statement
+     *
+     * @return number of items by category, for the categories having items
+     */
+    public Mono<Map<String, Long>> countByCategory() {
+        return Flux.usingWhen(
+            ConnectionFactoryUtils.getConnection(connectionFactory),
+            connection -> Flux
+                .from(connection.createStatement(COUNT_ITEMS_BY_CATEGORY).execute())
+                .concatMap(result -> result.map((row, metadata) -> new AbstractMap.SimpleEntry<>(
+                    row.get("CATEGORY", String.class), ((Number) row.get("ITEMS")).longValue()))),
+            this::closeConnection)
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * Delete items identified by SKU in a single batch
+     *
+     * @param skus
+     * @return number of rows deleted for each SKU, in the same order as the SKUs
+     */
+    public Flux<Integer> deleteAllBySku(List<String> skus) {
+        return execute(
+            connection -> connection.createStatement(DELETE_ITEMS_BY_SKU),
+            skus,
+            (statement, sku) -> statement.bind(0, sku),
+            result -> Flux.from(result.getRowsUpdated()));
+    }
+
+    /**
+     * Execute query with an IN condition holding one bind marker per SKU
+     */
+    private <R> Flux<R> select(
+        String query, Collection<String> skus, BiFunction<Row, RowMetadata, ? extends R> rowMapper) {
+
+        if (skus.isEmpty()) {
+            return Flux.empty();
+        }
+
+        List<String> values = new ArrayList<>(skus);
+        String markers = IntStream
+            .rangeClosed(1, values.size())
+            .mapToObj(i -> "$" + i)
+            .collect(Collectors.joining(", "));
+
+        return Flux.usingWhen(
+            ConnectionFactoryUtils.getConnection(connectionFactory),
+            connection -> {
+                Statement statement = connection.createStatement(String.format(query, markers));
+                for (int i = 0; i < values.size(); i++) {
+                    statement.bind(i, values.get(i));
+                }
+                return Flux.from(statement.execute()).concatMap(result -> result.map(rowMapper));
+            },
+            this::closeConnection);
+    }
+
+    private <T, R> Flux<R> execute(
+        Function<Connection, Statement> statementFactory,
+        List<T> values,
+        BiConsumer<Statement, T> binder,
+        Function<Result, Flux<R>> resultMapper) {
+
+        if (values.isEmpty()) {
+            return Flux.empty();
+        }
+
+        return Flux.usingWhen(
+            ConnectionFactoryUtils.getConnection(connectionFactory),
+            connection -> {
+                Statement statement = statementFactory.apply(connection);
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) {
+                        statement.add();
+                    }
+                    binder.accept(statement, values.get(i));
+                }
+                return Flux.from(statement.execute()).concatMap(resultMapper);
+            },
+            this::closeConnection);
+    }
+
+    /**
+     * Close the connection only when it is not bound to a transaction, same as DatabaseClient does. Connections bound
+     * to a transaction are closed by the transaction manager upon completion.
+     */
+    private Mono<Void> closeConnection(Connection connection) {
+        return ConnectionFactoryUtils
+            .currentConnectionFactory(connectionFactory)
+            .then()
+            .onErrorResume(Exception.class, e -> Mono.from(connection.close()));
+    }
+}
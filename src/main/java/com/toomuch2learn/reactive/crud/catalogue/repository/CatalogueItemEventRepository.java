@@ -0,0 +1,43 @@
+package com.toomuch2learn.reactive.crud.catalogue.repository;
+
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemEventRecord;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+public interface CatalogueItemEventRepository extends ReactiveCrudRepository<CatalogueItemEventRecord, Long> {
+
+    /**
+     * Fetch events written after the provided id, in the order they were written
+     */
+    @Query("SELECT * FROM CATALOGUE_ITEM_EVENTS WHERE ID > :after ORDER BY ID LIMIT :limit")
+    Flux<CatalogueItemEventRecord> findAfter(@Param("after") long after, @Param("limit") int limit);
+
+    /**
+     * Fetch events written after the provided id up to and including another, in the order they were written
+     */
+    @Query("SELECT * FROM CATALOGUE_ITEM_EVENTS WHERE ID > :after AND ID <= :upTo ORDER BY ID LIMIT :limit")
+    Flux<CatalogueItemEventRecord> findBetween(
+        @Param("after") long after, @Param("upTo") long upTo, @Param("limit") int limit);
+
+    /**
+     * @return id of the latest event written, 0 if there are none
+     */
+    @Query("SELECT COALESCE(MAX(ID), 0) FROM CATALOGUE_ITEM_EVENTS")
+    Mono<Long> findLatestId();
+
+    /**
+     * @return id of the oldest event retained, 0 if there are none
+     */
+    @Query("SELECT COALESCE(MIN(ID), 0) FROM CATALOGUE_ITEM_EVENTS")
+    Mono<Long> findOldestId();
+
+    @Modifying
+    @Query("DELETE FROM CATALOGUE_ITEM_EVENTS WHERE CREATED_ON < :before")
+    Mono<Integer> deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,10 @@
+package com.toomuch2learn.reactive.crud.catalogue.repository;
+
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemImage;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+public interface CatalogueItemImageRepository extends ReactiveCrudRepository<CatalogueItemImage, Long> {
+
+    Mono<CatalogueItemImage> findBySku(String sku);
+}
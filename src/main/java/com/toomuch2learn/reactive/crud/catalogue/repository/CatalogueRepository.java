@@ -1,10 +1,120 @@
 package com.toomuch2learn.reactive.crud.catalogue.repository;
 
 import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveSortingRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.Collection;
+
 public interface CatalogueRepository extends ReactiveSortingRepository<CatalogueItem, Long> {
 
     Mono<CatalogueItem> findBySku(String sku);
+
+    /**
+     * Update Catalogue Item identified by SKU in a single statement
+     *
+     * @return number of rows updated, 0 if no item exists for the SKU
+     */
+    @Modifying
+    @Query(
+        "UPDATE CATALOGUE_ITEMS " +
+        "SET ITEM_NAME = :name, DESCRIPTION = :description, PRICE = :price, INVENTORY = :inventory, " +
+        "UPDATED_ON = :updatedOn, VERSION = VERSION + 1 " +
+        "WHERE SKU_NUMBER = :sku")
+    Mono<Integer> updateBySku(
+        @Param("sku") String sku,
+        @Param("name") String name,
+        @Param("description") String description,
+        @Param("price") Double price,
+        @Param("inventory") Integer inventory,
+        @Param("updatedOn") Instant updatedOn);
+
+    /**
+     * Update Catalogue Item identified by SKU in a single statement, only if it is still at one of the expected versions
+     *
+     * @return number of rows updated, 0 if no item exists for the SKU or the item is at a different version
+     */
+    @Modifying
+    @Query(
+        "UPDATE CATALOGUE_ITEMS " +
+        "SET ITEM_NAME = :name, DESCRIPTION = :description, PRICE = :price, INVENTORY = :inventory, " +
+        "UPDATED_ON = :updatedOn, VERSION = VERSION + 1 " +
+        "WHERE SKU_NUMBER = :sku AND VERSION IN (:versions)")
+    Mono<Integer> updateBySkuAndVersion(
+        @Param("sku") String sku,
+        @Param("versions") Collection<Long> versions,
+        @Param("name") String name,
+        @Param("description") String description,
+        @Param("price") Double price,
+        @Param("inventory") Integer inventory,
+        @Param("updatedOn") Instant updatedOn);
+
+    /**
+     * Add delta to the inventory of Catalogue Item identified by SKU in a single statement, unless it would take the
+     * inventory below zero or above the largest INTEGER. Arithmetic is done in the database, so concurrent adjustments
+     * never overwrite each other, and the new inventory is checked as BIGINT so it cannot overflow.
+     *
+     * @return number of rows updated, 0 if no item exists for the SKU or the new inventory would be out of range
+     */
+    @Modifying
+    @Query(
+        "UPDATE CATALOGUE_ITEMS " +
+        "SET INVENTORY = INVENTORY + :delta, UPDATED_ON = :updatedOn, VERSION = VERSION + 1 " +
+        "WHERE SKU_NUMBER = :sku AND CAST(INVENTORY AS BIGINT) + :delta BETWEEN 0 AND 2147483647")
+    Mono<Integer> adjustInventoryBySku(
+        @Param("sku") String sku,
+        @Param("delta") Integer delta,
+        @Param("updatedOn") Instant updatedOn);
+
+    @Query("SELECT INVENTORY FROM CATALOGUE_ITEMS WHERE SKU_NUMBER = :sku")
+    Mono<Integer> findInventoryBySku(@Param("sku") String sku);
+
+    /**
+     * Delete Catalogue Item identified by SKU in a single statement
+     *
+     * @return number of rows deleted, 0 if no item exists for the SKU
+     */
+    @Modifying
+    @Query("DELETE FROM CATALOGUE_ITEMS WHERE SKU_NUMBER = :sku")
+    Mono<Integer> deleteBySku(@Param("sku") String sku);
+
+    /**
+     * Fetch the page of items sorted by name and id which come after the provided keyset position. Backed by
+     * IDX_CATALOGUE_ITEMS_NAME_ID so cost depends on page size and not on table size.
+     */
+    @Query(
+        "SELECT * FROM CATALOGUE_ITEMS " +
+        "WHERE (ITEM_NAME > :name OR (ITEM_NAME = :name AND ID > :id)) " +
+        "AND PRICE BETWEEN :minPrice AND :maxPrice " +
+        "ORDER BY ITEM_NAME, ID " +
+        "LIMIT :limit")
+    Flux<CatalogueItem> findPageAfter(
+        @Param("name") String name,
+        @Param("id") Long id,
+        @Param("minPrice") Double minPrice,
+        @Param("maxPrice") Double maxPrice,
+        @Param("limit") int limit);
+
+    /**
+     * Same as {@link #findPageAfter} restricted to a single category. Backed by IDX_CATALOGUE_ITEMS_CATEGORY_NAME_ID.
+     */
+    @Query(
+        "SELECT * FROM CATALOGUE_ITEMS " +
+        "WHERE CATEGORY = :category " +
+        "AND (ITEM_NAME > :name OR (ITEM_NAME = :name AND ID > :id)) " +
+        "AND PRICE BETWEEN :minPrice AND :maxPrice " +
+        "ORDER BY ITEM_NAME, ID " +
+        "LIMIT :limit")
+    Flux<CatalogueItem> findPageByCategoryAfter(
+        @Param("category") String category,
+        @Param("name") String name,
+        @Param("id") Long id,
+        @Param("minPrice") Double minPrice,
+        @Param("maxPrice") Double maxPrice,
+        @Param("limit") int limit);
 }
@@ -0,0 +1,55 @@
+package com.toomuch2learn.reactive.crud.catalogue.repository;
+
+import com.toomuch2learn.reactive.crud.catalogue.model.ImageBlob;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Registry of blobs in the image store. Blobs are referenced by Catalogue Item images with the same checksum, so their
+ * reference count drops as soon as items are deleted and is never out of step with the images.
+ */
+public interface ImageBlobRepository extends ReactiveCrudRepository<ImageBlob, String> {
+
+    /**
+     * Register blob, or mark it as stored again if it is already registered
+     */
+    @Modifying
+    @Query(
+        "MERGE INTO IMAGE_BLOBS(CHECKSUM, CONTENT_LENGTH, STORED_ON) KEY(CHECKSUM) " +
+        "VALUES(:checksum, :contentLength, :storedOn)")
+    Mono<Integer> register(
+        @Param("checksum") String checksum,
+        @Param("contentLength") Long contentLength,
+        @Param("storedOn") Instant storedOn);
+
+    @Query("SELECT COUNT(*) FROM CATALOGUE_ITEM_IMAGES WHERE CHECKSUM = :checksum")
+    Mono<Long> countReferences(@Param("checksum") String checksum);
+
+    /**
+     * Fetch blobs which are not referenced by any image and were last stored before the provided time
+     */
+    @Query(
+        "SELECT * FROM IMAGE_BLOBS B " +
+        "WHERE B.STORED_ON < :before " +
+        "AND NOT EXISTS (SELECT 1 FROM CATALOGUE_ITEM_IMAGES I WHERE I.CHECKSUM = B.CHECKSUM) " +
+        "LIMIT :limit")
+    Flux<ImageBlob> findOrphanedBefore(@Param("before") Instant before, @Param("limit") int limit);
+
+    /**
+     * Unregister blob only if it is still not referenced and was not stored again since the provided time
+     *
+     * @return number of rows deleted, 0 if the blob is referenced or was stored again
+     */
+    @Modifying
+    @Query(
+        "DELETE FROM IMAGE_BLOBS B " +
+        "WHERE B.CHECKSUM = :checksum AND B.STORED_ON < :before " +
+        "AND NOT EXISTS (SELECT 1 FROM CATALOGUE_ITEM_IMAGES I WHERE I.CHECKSUM = B.CHECKSUM)")
+    Mono<Integer> deleteOrphaned(@Param("checksum") String checksum, @Param("before") Instant before);
+}
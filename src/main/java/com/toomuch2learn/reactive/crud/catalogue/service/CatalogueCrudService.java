@@ -1,21 +1,52 @@
 package com.toomuch2learn.reactive.crud.catalogue.service;
 
+import com.toomuch2learn.reactive.crud.catalogue.configuration.BulkProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.PaginationProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.StreamProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.Untimed;
+import com.toomuch2learn.reactive.crud.catalogue.exception.InsufficientInventoryException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.InvalidRequestException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.PreconditionFailedException;
 import com.toomuch2learn.reactive.crud.catalogue.exception.ResourceNotFoundException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.TooManyRequestsException;
 import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEvent;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventOutbox;
+import com.toomuch2learn.reactive.crud.catalogue.model.BulkItemResult;
 import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemPage;
+import com.toomuch2learn.reactive.crud.catalogue.model.Category;
+import com.toomuch2learn.reactive.crud.catalogue.model.InventoryAdjustment;
+import com.toomuch2learn.reactive.crud.catalogue.model.InventoryAdjustmentResult;
+import com.toomuch2learn.reactive.crud.catalogue.model.InventoryLevel;
+import com.toomuch2learn.reactive.crud.catalogue.model.SkuReference;
+import com.toomuch2learn.reactive.crud.catalogue.repository.CatalogueBatchRepository;
 import com.toomuch2learn.reactive.crud.catalogue.repository.CatalogueRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
- * Service class to handle Catalogue Item CRUD Operations. Upon Creating/Updating CatalogueItem, CatalogueItemEvent will
- * be published to applicationEventPublisher
+ * Service class to handle Catalogue Item CRUD Operations. Upon Creating/Updating/Deleting CatalogueItem,
+ * CatalogueItemEvent is appended to the outbox in the same transaction and published once committed
  *
  * @author Madan Narra
  */
@@ -23,12 +54,39 @@ import java.time.Instant;
 @Service
 public class CatalogueCrudService {
 
-    private final ApplicationEventPublisher publisher;
+    private final CatalogueItemEventOutbox outbox;
     private final CatalogueRepository catalogueRepository;
+    private final CatalogueBatchRepository catalogueBatchRepository;
+    private final CatalogueItemCache catalogueItemCache;
+    private final TransactionalOperator transactionalOperator;
+    private final Validator validator;
+    private final PaginationProperties paginationProperties;
+    private final BulkProperties bulkProperties;
+    private final StreamProperties streamProperties;
 
-    CatalogueCrudService(ApplicationEventPublisher publisher, CatalogueRepository catalogueRepository) {
-        this.publisher = publisher;
+    // Streams holding a database connection, bounded by the configured maximum
+    private final AtomicInteger openStreams = new AtomicInteger();
+
+    CatalogueCrudService(
+        CatalogueItemEventOutbox outbox,
+        CatalogueRepository catalogueRepository,
+        CatalogueBatchRepository catalogueBatchRepository,
+        CatalogueItemCache catalogueItemCache,
+        TransactionalOperator transactionalOperator,
+        Validator validator,
+        PaginationProperties paginationProperties,
+        BulkProperties bulkProperties,
+        StreamProperties streamProperties) {
+
+        this.outbox = outbox;
         this.catalogueRepository = catalogueRepository;
+        this.catalogueBatchRepository = catalogueBatchRepository;
+        this.catalogueItemCache = catalogueItemCache;
+        this.transactionalOperator = transactionalOperator;
+        this.validator = validator;
+        this.paginationProperties = paginationProperties;
+        this.bulkProperties = bulkProperties;
+        this.streamProperties = streamProperties;
     }
 
     public Flux<CatalogueItem> getCatalogueItems() {
@@ -37,52 +95,634 @@ public class CatalogueCrudService {
         return catalogueRepository.findAll(sort);
     }
 
+    /**
+     * Stream all Catalogue Items sorted by name as fast as the subscriber requests them. Items are requested from the
+     * database cursor prefetch at a time, so a slow subscriber applies backpressure down to the database. Each stream
+     * holds a database connection until it completes, so streams beyond the configured maximum are rejected with
+     * TooManyRequestsException.
+     *
+     * @param rate optional maximum items per second
+     * @return catalogueItems
+     * @throws TooManyRequestsException
+     */
+    @Untimed
+    public Flux<CatalogueItem> streamCatalogueItems(Integer rate) {
+        return throttle(streamItems(), 1, resolveRate(rate));
+    }
+
+    /**
+     * Same as {@link #streamCatalogueItems(Integer)} with items emitted in chunks, so fewer and larger elements are
+     * encoded and flushed for clients consuming large catalogues.
+     *
+     * @param chunkSize optional number of items per chunk
+     * @param rate optional maximum items per second
+     * @return chunks of catalogueItems
+     */
+    @Untimed
+    public Flux<List<CatalogueItem>> streamCatalogueItemChunks(Integer chunkSize, Integer rate) {
+        int size = resolveChunkSize(chunkSize);
+        return throttle(streamItems().buffer(size), size, resolveRate(rate));
+    }
+
+    /**
+     * Get a page of Catalogue Items sorted by name, starting after the position encoded in the cursor. One extra row is
+     * fetched to know if a next page exists without issuing a count query.
+     *
+     * @param cursor opaque cursor returned with the previous page, null for the first page
+     * @param size number of items to return, defaults to configured page size when null
+     * @param category optional category to filter on
+     * @param minPrice optional lower bound on price (inclusive)
+     * @param maxPrice optional upper bound on price (inclusive)
+     * @return catalogueItemPage
+     */
+    public Mono<CatalogueItemPage> getCatalogueItems(
+        String cursor, Integer size, String category, Double minPrice, Double maxPrice) {
+
+        int pageSize;
+        CatalogueItemCursor position;
+        String resolvedCategory;
+        try {
+            pageSize = resolvePageSize(size);
+            position = CatalogueItemCursor.decode(cursor);
+            resolvedCategory = StringUtils.isEmpty(category) ? null : resolveCategory(category);
+        }
+        catch (InvalidRequestException e) {
+            return Mono.error(e);
+        }
+        double lower = minPrice != null ? minPrice : -Double.MAX_VALUE;
+        double upper = maxPrice != null ? maxPrice : Double.MAX_VALUE;
+
+        Flux<CatalogueItem> items = resolvedCategory == null
+            ? catalogueRepository.findPageAfter(
+                position.getName(), position.getId(), lower, upper, pageSize + 1)
+            : catalogueRepository.findPageByCategoryAfter(
+                resolvedCategory, position.getName(), position.getId(), lower, upper, pageSize + 1);
+
+        return items
+            .collectList()
+            .map(list -> {
+                if (list.size() <= pageSize) {
+                    return new CatalogueItemPage(list, null);
+                }
+
+                List<CatalogueItem> page = list.subList(0, pageSize);
+                return new CatalogueItemPage(page, CatalogueItemCursor.after(page.get(pageSize - 1)).encode());
+            });
+    }
+
+    /**
+     * Get Catalogue Item by SKU through the read-through cache
+     *
+     * @param skuNumber
+     * @return catalogueItem
+     * @throws ResourceNotFoundException
+     */
     public Mono<CatalogueItem> getCatalogueItem( String skuNumber) throws ResourceNotFoundException {
-        return getCatalogueItemBySku(skuNumber);
+        return catalogueItemCache
+            .get(skuNumber, catalogueRepository::findBySku)
+            .switchIfEmpty(Mono.defer(() -> Mono.error(resourceNotFound(skuNumber))));
     }
 
     public Mono<Long> addCatalogItem(CatalogueItem catalogueItem) {
         catalogueItem.setCreatedOn(Instant.now());
+        catalogueItem.setVersion(null);
 
         return
             catalogueRepository
                 .save(catalogueItem)
-                .doOnSuccess(item -> publishCatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_CREATED, item))
+                .flatMap(item -> outbox.append(CatalogueItemEvent.CATALOGUEITEM_CREATED, item).thenReturn(item))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(item -> committed(item.getSku()))
                 .flatMap(item -> Mono.just(item.getId()));
     }
 
-    public void updateCatalogueItem(CatalogueItem catalogueItem) throws ResourceNotFoundException{
+    /**
+     * Update Catalogue Item by SKU with a single conditional UPDATE statement. Completes once the update is written,
+     * or with ResourceNotFoundException if no item exists for the SKU.
+     *
+     * When expected versions are provided, item is updated only if it is still at one of those versions and
+     * PreconditionFailedException is raised otherwise, which is always the case when no version is expected. Version of the catalogue item is set to the new version upon
+     * successful update, read back along with the updated row which is published as the UPDATED event.
+     *
+     * @param skuNumber
+     * @param catalogueItem
+     * @param expectedVersions versions the client accepts the item to be at, null to update unconditionally
+     * @return completion
+     * @throws ResourceNotFoundException
+     * @throws PreconditionFailedException
+     */
+    public Mono<Void> updateCatalogueItem(
+        String skuNumber, CatalogueItem catalogueItem, Collection<Long> expectedVersions)
+        throws ResourceNotFoundException, PreconditionFailedException {
 
-        Mono<CatalogueItem> catalogueItemfromDB = getCatalogueItemBySku(catalogueItem.getSku());
+        catalogueItem.setSku(skuNumber);
+        catalogueItem.setUpdatedOn(Instant.now());
 
-        catalogueItemfromDB.subscribe(
-            value -> {
-                value.setName(catalogueItem.getName());
-                value.setDescription(catalogueItem.getDescription());
-                value.setPrice(catalogueItem.getPrice());
-                value.setInventory(catalogueItem.getInventory());
-                value.setUpdatedOn(Instant.now());
+        Mono<Integer> rowsUpdated = expectedVersions == null
+            ? catalogueRepository.updateBySku(
+                skuNumber,
+                catalogueItem.getName(),
+                catalogueItem.getDescription(),
+                catalogueItem.getPrice(),
+                catalogueItem.getInventory(),
+                catalogueItem.getUpdatedOn())
+            : expectedVersions.isEmpty()
+            ? Mono.just(0)
+            : catalogueRepository.updateBySkuAndVersion(
+                skuNumber,
+                expectedVersions,
+                catalogueItem.getName(),
+                catalogueItem.getDescription(),
+                catalogueItem.getPrice(),
+                catalogueItem.getInventory(),
+                catalogueItem.getUpdatedOn());
 
-                catalogueRepository
-                    .save(value)
-                    .doOnSuccess(item -> publishCatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_UPDATED, item))
-                    .subscribe();
-            });
+        return rowsUpdated
+            .flatMap(count -> {
+                if (count > 0) {
+                    // Event carries the row as written, with the version and columns not sent with the update
+                    return catalogueRepository
+                        .findBySku(skuNumber)
+                        .flatMap(updated -> {
+                            catalogueItem.setVersion(updated.getVersion());
+                            return outbox.append(CatalogueItemEvent.CATALOGUEITEM_UPDATED, updated);
+                        });
+                }
+
+                // Only when nothing is updated, check if it is due to version mismatch or missing item
+                return catalogueRepository
+                    .findBySku(skuNumber)
+                    .hasElement()
+                    .flatMap(exists -> Mono.error(exists
+                        ? new PreconditionFailedException(String.format(
+                            "Catalogue Item with SKU %s is not at any of the versions %s", skuNumber, expectedVersions))
+                        : resourceNotFound(skuNumber)));
+            })
+            .as(transactionalOperator::transactional)
+            .doOnSuccess(v -> committed(skuNumber));
+    }
+
+    /**
+     * Delete Catalogue Item by SKU with a single conditional DELETE statement. Completes once the delete is written,
+     * or with ResourceNotFoundException if no item exists for the SKU.
+     *
+     * @param skuNumber
+     * @return completion
+     * @throws ResourceNotFoundException
+     */
+    public Mono<Void> deleteCatalogueItem(String skuNumber) throws ResourceNotFoundException {
+        return catalogueRepository
+            .deleteBySku(skuNumber)
+            .flatMap(rowsDeleted -> {
+                if (rowsDeleted == 0) {
+                    return Mono.<Void>error(resourceNotFound(skuNumber));
+                }
+
+                CatalogueItem item = new CatalogueItem();
+                item.setSku(skuNumber);
+                return outbox.append(CatalogueItemEvent.CATALOGUEITEM_DELETED, item);
+            })
+            .as(transactionalOperator::transactional)
+            .doOnSuccess(v -> committed(skuNumber));
+    }
+
+    /**
+     * Adjust inventory of Catalogue Item by SKU with a single UPDATE statement which adds the delta in the database, so
+     * concurrent adjustments need neither a read before the write nor an item sent over the wire. Completes with the
+     * new inventory level, with InsufficientInventoryException if the delta would take inventory below zero, with
+     * InvalidRequestException if it would take inventory above the largest level that can be stored, or with
+     * ResourceNotFoundException if no item exists for the SKU.
+     *
+     * @param skuNumber
+     * @param delta positive to increment and negative to decrement inventory
+     * @return inventoryLevel
+     * @throws ResourceNotFoundException
+     * @throws InsufficientInventoryException
+     * @throws InvalidRequestException
+     */
+    public Mono<InventoryLevel> adjustInventory(String skuNumber, int delta)
+        throws ResourceNotFoundException, InsufficientInventoryException {
+
+        // Adjusted level is read in the same transaction, so it is not affected by concurrent adjustments
+        return catalogueRepository
+            .adjustInventoryBySku(skuNumber, delta, Instant.now())
+            .flatMap(rowsUpdated -> rowsUpdated > 0
+                ? catalogueRepository.findInventoryBySku(skuNumber)
+                : Mono.<Integer>empty())
+            .map(inventory -> new InventoryLevel(skuNumber, inventory))
+            .flatMap(level -> outbox
+                .append(CatalogueItemEvent.CATALOGUEITEM_INVENTORY_CHANGED, inventoryChangedItem(level))
+                .thenReturn(level))
+            .as(transactionalOperator::transactional)
+            .doOnNext(level -> committed(skuNumber))
+            // Only when nothing is adjusted, check if it is due to the new inventory being out of range or missing item
+            .switchIfEmpty(Mono.defer(() -> catalogueRepository
+                .findInventoryBySku(skuNumber)
+                .flatMap(inventory -> Mono.<InventoryLevel>error(exceedsMaximumInventory(inventory, delta)
+                    ? inventoryOutOfRange(skuNumber, delta)
+                    : insufficientInventory(skuNumber, delta)))
+                .switchIfEmpty(Mono.defer(() -> Mono.error(resourceNotFound(skuNumber))))));
+    }
+
+    /**
+     * Adjust inventory of Catalogue Items by SKU in chunks of configured size. Each chunk is written as a single batch
+     * statement in its own transaction and published as one CatalogueItemEvent. Adjustments which cannot be applied are
+     * reported without failing the rest of the chunk.
+     *
+     * @param adjustments
+     * @return result for each adjustment in the order adjustments were received
+     */
+    public Flux<InventoryAdjustmentResult> adjustInventories(Flux<InventoryAdjustment> adjustments) {
+        return adjustments
+            .buffer(bulkProperties.getChunkSize())
+            .concatMap(this::adjustInventoriesChunk);
+    }
+
+    /**
+     * Create Catalogue Items in chunks of configured size. Each chunk is inserted as a single batch statement in its own
+     * transaction and published as one CatalogueItemEvent. Items failing validation are reported and skipped without
+     * failing the rest of the chunk.
+     *
+     * @param catalogueItems
+     * @return result for each item in the order items were received
+     */
+    public Flux<BulkItemResult> addCatalogueItems(Flux<CatalogueItem> catalogueItems) {
+        return catalogueItems
+            .buffer(bulkProperties.getChunkSize())
+            .concatMap(this::addCatalogueItemsChunk);
+    }
+
+    /**
+     * Update Catalogue Items by SKU in chunks of configured size, with each chunk written as a single batch statement
+     * in its own transaction and published as one CatalogueItemEvent.
+     *
+     * @param catalogueItems
+     * @return result for each item in the order items were received
+     */
+    public Flux<BulkItemResult> updateCatalogueItems(Flux<CatalogueItem> catalogueItems) {
+        return catalogueItems
+            .buffer(bulkProperties.getChunkSize())
+            .concatMap(this::updateCatalogueItemsChunk);
+    }
+
+    /**
+     * Delete Catalogue Items by SKU in chunks of configured size, with each chunk written as a single batch statement
+     * in its own transaction.
+     *
+     * @param skuReferences
+     * @return result for each SKU in the order SKUs were received
+     */
+    public Flux<BulkItemResult> deleteCatalogueItems(Flux<SkuReference> skuReferences) {
+        return skuReferences
+            .buffer(bulkProperties.getChunkSize())
+            .concatMap(this::deleteCatalogueItemsChunk);
     }
 
-    public void deleteCatalogueItem(CatalogueItem catalogueItem) {
+    private Flux<BulkItemResult> addCatalogueItemsChunk(List<CatalogueItem> chunk) {
+        BulkItemResult[] results = new BulkItemResult[chunk.size()];
+        List<Integer> positions = new ArrayList<>();
+        List<CatalogueItem> items = validChunkItems(chunk, CatalogueItem::getSku, results, positions);
+
+        Instant now = Instant.now();
+        items.forEach(item -> {
+            item.setId(null);
+            item.setCategory(resolveCategory(item.getCategory()));
+            item.setCreatedOn(now);
+            item.setVersion(0L);
+        });
+
+        return catalogueBatchRepository
+            .insertAll(items)
+            .collectList()
+            .flatMap(ids -> {
+                for (int i = 0; i < items.size(); i++) {
+                    CatalogueItem item = items.get(i);
+                    item.setId(ids.get(i));
+                    results[positions.get(i)]
+                        = new BulkItemResult(item.getSku(), BulkItemResult.Status.CREATED, item.getId(), null);
+                }
+                return outbox.append(CatalogueItemEvent.CATALOGUEITEM_CREATED, items).thenReturn(results);
+            })
+            .as(transactionalOperator::transactional)
+            .doOnNext(r -> committed(items))
+            .onErrorResume(e -> Mono.just(failChunk(e, results, positions, items, CatalogueItem::getSku)))
+            .flatMapIterable(Arrays::asList);
+    }
+
+    private Flux<BulkItemResult> updateCatalogueItemsChunk(List<CatalogueItem> chunk) {
+        BulkItemResult[] results = new BulkItemResult[chunk.size()];
+        List<Integer> positions = new ArrayList<>();
+        List<CatalogueItem> items = validChunkItems(chunk, CatalogueItem::getSku, results, positions);
+
+        Instant now = Instant.now();
+        items.forEach(item -> {
+            item.setUpdatedOn(now);
+            item.setVersion(null);
+        });
+
+        return catalogueBatchRepository
+            .updateAllBySku(items)
+            .collectList()
+            .flatMap(rowsUpdated -> {
+                List<CatalogueItem> updated = new ArrayList<>();
+                for (int i = 0; i < items.size(); i++) {
+                    CatalogueItem item = items.get(i);
+                    if (rowsUpdated.get(i) > 0) {
+                        updated.add(item);
+                        results[positions.get(i)] = BulkItemResult.of(item.getSku(), BulkItemResult.Status.UPDATED);
+                    }
+                    else {
+                        results[positions.get(i)] = BulkItemResult.of(item.getSku(), BulkItemResult.Status.NOT_FOUND);
+                    }
+                }
+                return catalogueBatchRepository
+                    .findAllBySku(updated.stream().map(CatalogueItem::getSku).collect(Collectors.toList()))
+                    .collectList()
+                    .flatMap(rows -> outbox.append(CatalogueItemEvent.CATALOGUEITEM_UPDATED, rows))
+                    .thenReturn(results);
+            })
+            .as(transactionalOperator::transactional)
+            .doOnNext(r -> committed(items))
+            .onErrorResume(e -> Mono.just(failChunk(e, results, positions, items, CatalogueItem::getSku)))
+            .flatMapIterable(Arrays::asList);
+    }
+
+    private Flux<BulkItemResult> deleteCatalogueItemsChunk(List<SkuReference> chunk) {
+        BulkItemResult[] results = new BulkItemResult[chunk.size()];
+        List<Integer> positions = new ArrayList<>();
+        List<String> skus
+            = validChunkItems(chunk, SkuReference::getSku, results, positions)
+                .stream()
+                .map(SkuReference::getSku)
+                .collect(Collectors.toList());
+
+        return catalogueBatchRepository
+            .deleteAllBySku(skus)
+            .collectList()
+            .flatMap(rowsDeleted -> {
+                List<CatalogueItem> deleted = new ArrayList<>();
+                for (int i = 0; i < skus.size(); i++) {
+                    if (rowsDeleted.get(i) > 0) {
+                        CatalogueItem item = new CatalogueItem();
+                        item.setSku(skus.get(i));
+                        deleted.add(item);
+                        results[positions.get(i)] = BulkItemResult.of(skus.get(i), BulkItemResult.Status.DELETED);
+                    }
+                    else {
+                        results[positions.get(i)] = BulkItemResult.of(skus.get(i), BulkItemResult.Status.NOT_FOUND);
+                    }
+                }
+                // Only SKU is known for items deleted in bulk
+                return outbox.append(CatalogueItemEvent.CATALOGUEITEM_DELETED, deleted).thenReturn(results);
+            })
+            .as(transactionalOperator::transactional)
+            .doOnNext(r -> committed(skus.toArray(new String[0])))
+            .onErrorResume(e -> Mono.just(failChunk(e, results, positions, skus, sku -> sku)))
+            .flatMapIterable(Arrays::asList);
+    }
+
+    private Flux<InventoryAdjustmentResult> adjustInventoriesChunk(List<InventoryAdjustment> chunk) {
+        InventoryAdjustmentResult[] results = new InventoryAdjustmentResult[chunk.size()];
+        List<Integer> positions = new ArrayList<>();
+        List<InventoryAdjustment> adjustments = new ArrayList<>();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            InventoryAdjustment adjustment = chunk.get(i);
+            List<String> messages = validator.validate(adjustment)
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.toList());
+            if (StringUtils.isEmpty(adjustment.getSku())) {
+                messages.add("SKU cannot be null or empty");
+            }
+
+            if (messages.isEmpty()) {
+                adjustments.add(adjustment);
+                positions.add(i);
+            }
+            else {
+                results[i] = new InventoryAdjustmentResult(
+                    adjustment.getSku(),
+                    InventoryAdjustmentResult.Status.INVALID,
+                    null,
+                    messages.stream().sorted().collect(Collectors.joining(", ")));
+            }
+        }
+
+        Set<String> skus = adjustments.stream().map(InventoryAdjustment::getSku).collect(Collectors.toSet());
+
+        // Levels are read once the whole chunk is applied, in the same transaction, and tell missing items apart
+        return catalogueBatchRepository
+            .adjustAllInventoryBySku(adjustments)
+            .collectList()
+            .zipWhen(rowsUpdated -> catalogueBatchRepository.findInventoryBySku(skus))
+            .flatMap(tuple -> {
+                List<Integer> rowsUpdated = tuple.getT1();
+                Map<String, Integer> levels = tuple.getT2();
+                List<CatalogueItem> adjusted = new ArrayList<>();
+                for (int i = 0; i < adjustments.size(); i++) {
+                    InventoryAdjustment adjustment = adjustments.get(i);
+                    String sku = adjustment.getSku();
+                    if (rowsUpdated.get(i) > 0) {
+                        InventoryLevel level = new InventoryLevel(sku, levels.get(sku));
+                        adjusted.add(inventoryChangedItem(level));
+                        results[positions.get(i)] = new InventoryAdjustmentResult(
+                            sku, InventoryAdjustmentResult.Status.ADJUSTED, level.getInventory(), null);
+                    }
+                    else if (levels.containsKey(sku)) {
+                        int inventory = levels.get(sku);
+                        boolean exceedsMaximum = exceedsMaximumInventory(inventory, adjustment.getDelta());
+                        results[positions.get(i)] = new InventoryAdjustmentResult(
+                            sku,
+                            exceedsMaximum
+                                ? InventoryAdjustmentResult.Status.INVALID
+                                : InventoryAdjustmentResult.Status.INSUFFICIENT_INVENTORY,
+                            inventory,
+                            (exceedsMaximum
+                                ? inventoryOutOfRange(sku, adjustment.getDelta())
+                                : insufficientInventory(sku, adjustment.getDelta())).getMessage());
+                    }
+                    else {
+                        results[positions.get(i)]
+                            = InventoryAdjustmentResult.of(sku, InventoryAdjustmentResult.Status.NOT_FOUND);
+                    }
+                }
+                return outbox
+                    .append(CatalogueItemEvent.CATALOGUEITEM_INVENTORY_CHANGED, adjusted)
+                    .thenReturn(results);
+            })
+            .as(transactionalOperator::transactional)
+            .doOnNext(r -> committed(skus.toArray(new String[0])))
+            .onErrorResume(e -> {
+                log.error("Error occurred while adjusting inventory for chunk of {} catalogue items", adjustments.size(), e);
+                for (int i = 0; i < adjustments.size(); i++) {
+                    results[positions.get(i)] = new InventoryAdjustmentResult(
+                        adjustments.get(i).getSku(), InventoryAdjustmentResult.Status.FAILED, null, e.getMessage());
+                }
+                return Mono.just(results);
+            })
+            .flatMapIterable(Arrays::asList);
+    }
+
+    /**
+     * Validate items in a chunk using the bean constraints. Results are recorded for invalid items and the valid items
+     * are returned along with their positions in the chunk.
+     */
+    private <T> List<T> validChunkItems(
+        List<T> chunk, Function<T, String> skuOf, BulkItemResult[] results, List<Integer> positions) {
+
+        List<T> items = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            T item = chunk.get(i);
+            Set<ConstraintViolation<T>> violations = validator.validate(item);
+            if (violations.isEmpty()) {
+                items.add(item);
+                positions.add(i);
+            }
+            else {
+                results[i] = new BulkItemResult(
+                    skuOf.apply(item),
+                    BulkItemResult.Status.INVALID,
+                    null,
+                    violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", ")));
+            }
+        }
+        return items;
+    }
+
+    private <T> BulkItemResult[] failChunk(
+        Throwable e, BulkItemResult[] results, List<Integer> positions, List<T> items, Function<T, String> skuOf) {
+
+        log.error("Error occurred while writing chunk of {} catalogue items", items.size(), e);
+        for (int i = 0; i < items.size(); i++) {
+            results[positions.get(i)]
+                = new BulkItemResult(skuOf.apply(items.get(i)), BulkItemResult.Status.FAILED, null, e.getMessage());
+        }
+        return results;
+    }
+
+    private ResourceNotFoundException resourceNotFound(String skuNumber) {
+        return new ResourceNotFoundException(
+            String.format("Catalogue Item not found for the provided SKU :: %s" , skuNumber));
+    }
+
+    private InsufficientInventoryException insufficientInventory(String skuNumber, int delta) {
+        return new InsufficientInventoryException(
+            String.format("Insufficient inventory to adjust Catalogue Item with SKU %s by %d", skuNumber, delta));
+    }
+
+    private boolean exceedsMaximumInventory(int inventory, int delta) {
+        return (long) inventory + delta > Integer.MAX_VALUE;
+    }
+
+    private InvalidRequestException inventoryOutOfRange(String skuNumber, int delta) {
+        return new InvalidRequestException(String.format(
+            "Adjusting inventory of Catalogue Item with SKU %s by %d exceeds the maximum inventory of %d",
+            skuNumber, delta, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Only SKU and the new inventory level are known for items whose inventory is adjusted
+     */
+    private CatalogueItem inventoryChangedItem(InventoryLevel level) {
+        CatalogueItem item = new CatalogueItem();
+        item.setSku(level.getSku());
+        item.setInventory(level.getInventory());
+        return item;
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return paginationProperties.getDefaultSize();
+        }
+
+        if (size < 1 || size > paginationProperties.getMaxSize()) {
+            throw new InvalidRequestException(String.format(
+                "Page size should be between 1 and %d :: %d", paginationProperties.getMaxSize(), size));
+        }
+        return size;
+    }
+
+    private Flux<CatalogueItem> streamItems() {
+        return Flux.defer(() -> {
+            if (openStreams.incrementAndGet() > streamProperties.getMaxConcurrentStreams()) {
+                openStreams.decrementAndGet();
+                return Flux.error(new TooManyRequestsException(String.format(
+                    "Catalogue items are being streamed to %d clients, retry later",
+                    streamProperties.getMaxConcurrentStreams())));
+            }
+
+            return catalogueBatchRepository
+                .streamAll(streamProperties.getPrefetch())
+                .limitRate(streamProperties.getPrefetch())
+                .doFinally(signal -> openStreams.decrementAndGet());
+        });
+    }
+
+    /**
+     * Space elements carrying the given number of items so they are emitted at no more than rate items per second
+     */
+    private <T> Flux<T> throttle(Flux<T> elements, int itemsPerElement, int rate) {
+        if (rate == 0) {
+            return elements;
+        }
+        return elements.delayElements(Duration.ofNanos(TimeUnit.SECONDS.toNanos(itemsPerElement) / rate));
+    }
+
+    private int resolveChunkSize(Integer chunkSize) {
+        if (chunkSize == null) {
+            return streamProperties.getDefaultChunkSize();
+        }
+
+        if (chunkSize < 1 || chunkSize > streamProperties.getMaxChunkSize()) {
+            throw new InvalidRequestException(String.format(
+                "Chunk size should be between 1 and %d :: %d", streamProperties.getMaxChunkSize(), chunkSize));
+        }
+        return chunkSize;
+    }
+
+    /**
+     * @return rate requested by the client within the configured bounds, 0 when neither limits the rate
+     */
+    private int resolveRate(Integer rate) {
+        int minRate = Math.max(streamProperties.getMinRate(), 1);
+        int maxRate = streamProperties.getMaxRate();
+        if (rate == null) {
+            return maxRate;
+        }
+
+        if (rate < minRate || (maxRate > 0 && rate > maxRate)) {
+            throw new InvalidRequestException(maxRate > 0
+                ? String.format("Rate should be between %d and %d :: %d", minRate, maxRate, rate)
+                : String.format("Rate should be at least %d :: %d", minRate, rate));
+        }
+        return rate;
+    }
 
-        // For delete to work as expected, we need to subscribe() for the flow to complete
-        catalogueRepository.delete(catalogueItem).subscribe();
+    /**
+     * Category is accepted case insensitive, and resolved to the display value of {@link Category}
+     */
+    private String resolveCategory(String category) {
+        try {
+            return Category.valueOf(category.toUpperCase()).getValue();
+        }
+        catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(String.format("Invalid category provided :: %s", category), e);
+        }
     }
 
-    private Mono<CatalogueItem> getCatalogueItemBySku(String skuNumber) throws ResourceNotFoundException {
-        return catalogueRepository.findBySku(skuNumber)
-            .switchIfEmpty(Mono.defer(() -> Mono.error(new ResourceNotFoundException(
-                String.format("Catalogue Item not found for the provided SKU :: %s" , skuNumber)))));
+    /**
+     * Once a change is committed, cached items are invalidated right away so they are read back by the next request,
+     * without waiting for its event to be relayed from the outbox
+     */
+    private void committed(String... skuNumbers) {
+        for (String skuNumber : skuNumbers) {
+            catalogueItemCache.invalidate(skuNumber);
+        }
+        outbox.relayNow();
     }
 
-    private final void publishCatalogueItemEvent(String eventType, CatalogueItem item) {
-        this.publisher.publishEvent(new CatalogueItemEvent(eventType, item));
+    private void committed(List<CatalogueItem> items) {
+        committed(items.stream().map(CatalogueItem::getSku).toArray(String[]::new));
     }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.toomuch2learn.reactive.crud.catalogue.service;
+
+import com.toomuch2learn.reactive.crud.catalogue.configuration.FileStorageProperties;
+import com.toomuch2learn.reactive.crud.catalogue.exception.InvalidRequestException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.PayloadTooLargeException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.ResourceNotFoundException;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemImage;
+import com.toomuch2learn.reactive.crud.catalogue.model.StoredFile;
+import com.toomuch2learn.reactive.crud.catalogue.repository.CatalogueItemImageRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Service class to handle Catalogue Item images. Image file is stored before its mapping to the item is written.
+ * Files are shared by images with the same content, so files no longer referenced, such as of replaced images or
+ * images of deleted items, are left to the garbage collection of {@link FileStorageService}. Renditions of stored
+ * images are produced in the background by {@link ImageRenditionService}.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Service
+public class CatalogueImageService {
+
+    private final CatalogueCrudService catalogueCrudService;
+    private final CatalogueItemImageRepository imageRepository;
+    private final FileStorageService fileStorageService;
+    private final TransactionalOperator transactionalOperator;
+    private final FileStorageProperties fileStorageProperties;
+    private final ImageRenditionService imageRenditionService;
+
+    CatalogueImageService(
+        CatalogueCrudService catalogueCrudService,
+        CatalogueItemImageRepository imageRepository,
+        FileStorageService fileStorageService,
+        TransactionalOperator transactionalOperator,
+        FileStorageProperties fileStorageProperties,
+        ImageRenditionService imageRenditionService) {
+
+        this.catalogueCrudService = catalogueCrudService;
+        this.imageRepository = imageRepository;
+        this.fileStorageService = fileStorageService;
+        this.transactionalOperator = transactionalOperator;
+        this.fileStorageProperties = fileStorageProperties;
+        this.imageRenditionService = imageRenditionService;
+    }
+
+    /**
+     * Store image of Catalogue Item by SKU, replacing its current image
+     *
+     * @param skuNumber
+     * @param filePart
+     * @return catalogueItemImage
+     * @throws ResourceNotFoundException
+     * @throws PayloadTooLargeException
+     */
+    public Mono<CatalogueItemImage> storeImage(String skuNumber, FilePart filePart)
+        throws ResourceNotFoundException, PayloadTooLargeException {
+
+        MediaType contentType = filePart.headers().getContentType();
+        if (contentType == null || !fileStorageProperties.getImageContentTypes().contains(contentType.toString())) {
+            return Mono.error(new InvalidRequestException(String.format(
+                "Image content type should be one of %s :: %s",
+                fileStorageProperties.getImageContentTypes(),
+                contentType)));
+        }
+
+        return catalogueCrudService
+            .getCatalogueItem(skuNumber)
+            .then(fileStorageService.storeFile(filePart))
+            .flatMap(storedFile -> saveImage(skuNumber, contentType, storedFile))
+            .doOnNext(imageRenditionService::render);
+    }
+
+    /**
+     * Get image of Catalogue Item by SKU
+     *
+     * @param skuNumber
+     * @return catalogueItemImage
+     * @throws ResourceNotFoundException
+     */
+    public Mono<CatalogueItemImage> getImage(String skuNumber) throws ResourceNotFoundException {
+        return imageRepository
+            .findBySku(skuNumber)
+            .switchIfEmpty(Mono.defer(() -> Mono.error(new ResourceNotFoundException(
+                String.format("Catalogue Item image not found for the provided SKU :: %s", skuNumber)))));
+    }
+
+    /**
+     * Get content of the image
+     *
+     * @param image
+     * @return resource
+     */
+    public Resource loadImage(CatalogueItemImage image) {
+        return fileStorageService.loadFile(image.getFileName());
+    }
+
+    private Mono<CatalogueItemImage> saveImage(String skuNumber, MediaType contentType, StoredFile storedFile) {
+        CatalogueItemImage image = new CatalogueItemImage();
+        image.setSku(skuNumber);
+        image.setFileName(storedFile.getFileName());
+        image.setContentType(contentType.toString());
+        image.setContentLength(storedFile.getContentLength());
+        image.setChecksum(storedFile.getChecksum());
+        image.setUploadedOn(Instant.now());
+
+        // Mapping is updated in place when the item already has an image
+        return imageRepository
+            .findBySku(skuNumber)
+            .doOnNext(previous -> image.setId(previous.getId()))
+            .then(Mono.defer(() -> imageRepository.save(image)))
+            .as(transactionalOperator::transactional);
+    }
+}
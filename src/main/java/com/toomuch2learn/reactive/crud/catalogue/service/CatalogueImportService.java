@@ -0,0 +1,263 @@
+package com.toomuch2learn.reactive.crud.catalogue.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.ImportProperties;
+import com.toomuch2learn.reactive.crud.catalogue.model.BulkItemResult;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.model.ImportSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service class to import Catalogue Items streamed as NDJSON. Request body is split into lines as it arrives and each
+ * line is parsed, then lines are written in chunks through the bulk create of {@link CatalogueCrudService}, each chunk
+ * as a single batch insert in its own transaction published as one CatalogueItemEvent. Reading from the request is
+ * driven by demand from the database writes, so only a bounded number of lines are held in memory irrespective of the
+ * size of the import.
+ *
+ * Lines longer than the maximum line size are skipped up to the next line break and rejected, rather than failing the
+ * import.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Service
+public class CatalogueImportService {
+
+    private final CatalogueCrudService catalogueCrudService;
+    private final ObjectMapper objectMapper;
+    private final ImportProperties importProperties;
+
+    CatalogueImportService(
+        CatalogueCrudService catalogueCrudService,
+        ObjectMapper objectMapper,
+        ImportProperties importProperties) {
+
+        this.catalogueCrudService = catalogueCrudService;
+        this.objectMapper = objectMapper;
+        this.importProperties = importProperties;
+    }
+
+    /**
+     * Import Catalogue Items from NDJSON content. Lines which are too long, cannot be parsed, fail validation or fail
+     * to be saved are rejected without stopping the import.
+     *
+     * @param content request body
+     * @return importSummary
+     */
+    public Mono<ImportSummary> importCatalogueItems(Flux<DataBuffer> content) {
+
+        return Flux
+            .defer(() -> {
+                LineSplitter splitter = new LineSplitter(importProperties.getMaxLineSize());
+                return content
+                    .concatMapIterable(splitter::split)
+                    .concatWith(Flux.defer(splitter::remainder));
+            })
+            .filter(line -> line.content == null || !line.content.trim().isEmpty())
+            .map(this::parseLine)
+            .buffer(importProperties.getChunkSize())
+            .flatMap(this::importChunk, importProperties.getConcurrency())
+            .reduceWith(ImportSummary::new, this::summarize);
+    }
+
+    private ParsedLine parseLine(Line line) {
+        if (line.content == null) {
+            return ParsedLine.rejected(LineResult.rejected(
+                line.number, null, "Line exceeds the maximum size of " + importProperties.getMaxLineSize() + " bytes"));
+        }
+
+        CatalogueItem item;
+        try {
+            item = objectMapper.readValue(line.content, CatalogueItem.class);
+        }
+        catch (JsonProcessingException e) {
+            return ParsedLine.rejected(
+                LineResult.rejected(line.number, null, "Invalid JSON :: " + e.getOriginalMessage()));
+        }
+        if (item == null) {
+            return ParsedLine.rejected(LineResult.rejected(line.number, null, "Line should hold a catalogue item"));
+        }
+        return new ParsedLine(line.number, item, null);
+    }
+
+    /**
+     * Create the items of a chunk of lines with a single batch insert. Should the batch fail as a whole, such as when a
+     * line repeats the SKU of an existing item, its items are created one at a time so only the failing lines are
+     * rejected.
+     */
+    private Flux<LineResult> importChunk(List<ParsedLine> chunk) {
+        List<ParsedLine> parsed = chunk.stream().filter(line -> line.item != null).collect(Collectors.toList());
+
+        return Flux
+            .fromIterable(chunk)
+            .filter(line -> line.item == null)
+            .map(line -> line.result)
+            .concatWith(catalogueCrudService
+                .addCatalogueItems(Flux.fromIterable(parsed).map(line -> line.item))
+                .collectList()
+                .flatMapMany(results -> Flux
+                    .range(0, results.size())
+                    .concatMap(i -> results.get(i).getStatus() == BulkItemResult.Status.FAILED
+                        ? importItem(parsed.get(i))
+                        : Mono.just(lineResult(parsed.get(i), results.get(i))))));
+    }
+
+    private Mono<LineResult> importItem(ParsedLine line) {
+        return catalogueCrudService
+            .addCatalogueItems(Flux.just(line.item))
+            .next()
+            .map(result -> lineResult(line, result))
+            .onErrorResume(e -> {
+                log.error("Error occurred while importing line {} with SKU {}", line.number, line.item.getSku(), e);
+                return Mono.just(LineResult.rejected(line.number, line.item.getSku(), e.getMessage()));
+            });
+    }
+
+    private LineResult lineResult(ParsedLine line, BulkItemResult result) {
+        return result.getStatus() == BulkItemResult.Status.CREATED
+            ? LineResult.CREATED
+            : LineResult.rejected(line.number, result.getSku(), result.getMessage());
+    }
+
+    private ImportSummary summarize(ImportSummary summary, LineResult result) {
+        summary.setReceived(summary.getReceived() + 1);
+
+        if (result.error == null) {
+            summary.setCreated(summary.getCreated() + 1);
+        }
+        else {
+            summary.setRejected(summary.getRejected() + 1);
+            if (summary.getErrors().size() < importProperties.getMaxReportedErrors()) {
+                summary.getErrors().add(result.error);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Line of the content, with null content when the line exceeds the maximum line size
+     */
+    private static class Line {
+
+        private final long number;
+        private final String content;
+
+        Line(long number, String content) {
+            this.number = number;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Splits content into lines as buffers arrive, holding at most the maximum line size of the current line. Bytes of a
+     * line are decoded once the line is complete, so multi-byte characters split across buffers are decoded intact.
+     */
+    private static class LineSplitter {
+
+        private final int maxLineSize;
+        private final ByteArrayOutputStream current = new ByteArrayOutputStream();
+        private boolean oversized;
+        private long number;
+
+        LineSplitter(int maxLineSize) {
+            this.maxLineSize = maxLineSize;
+        }
+
+        List<Line> split(DataBuffer buffer) {
+            List<Line> lines = new ArrayList<>();
+            try {
+                while (buffer.readableByteCount() > 0) {
+                    int newline = buffer.indexOf(b -> b == '\n', buffer.readPosition());
+                    append(buffer, (newline == -1 ? buffer.writePosition() : newline) - buffer.readPosition());
+                    if (newline != -1) {
+                        buffer.readPosition(newline + 1);
+                        lines.add(endLine());
+                    }
+                }
+            }
+            finally {
+                DataBufferUtils.release(buffer);
+            }
+            return lines;
+        }
+
+        /**
+         * Last line of the content when it does not end with a line break
+         */
+        Flux<Line> remainder() {
+            return current.size() > 0 || oversized ? Flux.just(endLine()) : Flux.empty();
+        }
+
+        private void append(DataBuffer buffer, int length) {
+            if (!oversized && current.size() + length > maxLineSize) {
+                oversized = true;
+                current.reset();
+            }
+
+            if (oversized) {
+                buffer.readPosition(buffer.readPosition() + length);
+            }
+            else {
+                byte[] bytes = new byte[length];
+                buffer.read(bytes);
+                current.write(bytes, 0, length);
+            }
+        }
+
+        private Line endLine() {
+            String content = oversized ? null : new String(current.toByteArray(), StandardCharsets.UTF_8);
+            current.reset();
+            oversized = false;
+            return new Line(++number, content != null && content.endsWith("\r")
+                ? content.substring(0, content.length() - 1)
+                : content);
+        }
+    }
+
+    /**
+     * Line parsed into a catalogue item, or the result of rejecting it when it cannot be parsed
+     */
+    private static class ParsedLine {
+
+        private final long number;
+        private final CatalogueItem item;
+        private final LineResult result;
+
+        ParsedLine(long number, CatalogueItem item, LineResult result) {
+            this.number = number;
+            this.item = item;
+            this.result = result;
+        }
+
+        static ParsedLine rejected(LineResult result) {
+            return new ParsedLine(result.error.getLine(), null, result);
+        }
+    }
+
+    private static class LineResult {
+
+        static final LineResult CREATED = new LineResult(null);
+
+        private final ImportSummary.LineError error;
+
+        private LineResult(ImportSummary.LineError error) {
+            this.error = error;
+        }
+
+        static LineResult rejected(long line, String sku, String message) {
+            return new LineResult(new ImportSummary.LineError(line, sku, message));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.toomuch2learn.reactive.crud.catalogue.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.SkuCacheProperties;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEvent;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of Catalogue Items by SKU. Concurrent misses for the same SKU share a single load, so a burst of
+ * requests for an uncached SKU hits the database once. Entries are evicted by size and time to live, and invalidated
+ * whenever a CatalogueItemEvent is published for the SKU.
+ *
+ * Hit, miss and eviction metrics are published under the cache name "catalogueItems".
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Component
+public class CatalogueItemCache implements ApplicationListener<CatalogueItemEvent> {
+
+    public static final String CACHE_NAME = "catalogueItems";
+
+    private final AsyncCache<String, CatalogueItem> cache;
+
+    CatalogueItemCache(SkuCacheProperties skuCacheProperties, MeterRegistry meterRegistry) {
+        this.cache = CaffeineCacheMetrics.monitor(
+            meterRegistry,
+            Caffeine.newBuilder()
+                .maximumSize(skuCacheProperties.getMaximumSize())
+                .expireAfterWrite(skuCacheProperties.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync(),
+            CACHE_NAME);
+    }
+
+    /**
+     * Get Catalogue Item from cache, loading it with the provided loader if not present. Loader completing empty is
+     * not cached.
+     *
+     * @param sku
+     * @param loader
+     * @return catalogueItem
+     */
+    public Mono<CatalogueItem> get(String sku, Function<String, Mono<CatalogueItem>> loader) {
+        return Mono.defer(() -> {
+            CompletableFuture<CatalogueItem> load = new CompletableFuture<>();
+            CompletableFuture<CatalogueItem> item = cache.get(sku, (key, executor) -> load);
+
+            // Loader is subscribed once the entry is computed rather than while computing it, as it can complete on
+            // this thread along with other work, such as committing a transaction which invalidates the same SKU
+            if (item == load) {
+                loader.apply(sku).subscribe(load::complete, load::completeExceptionally, () -> load.complete(null));
+            }
+            return Mono.fromFuture(item);
+        });
+    }
+
+    public void invalidate(String sku) {
+        cache.synchronous().invalidate(sku);
+    }
+
+    @Override
+    public void onApplicationEvent(CatalogueItemEvent event) {
+        event.getCatalogueItems().forEach(item -> {
+            log.debug("Invalidating cached catalogue item {} on {} event", item.getSku(), event.getEventType());
+            invalidate(item.getSku());
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package com.toomuch2learn.reactive.crud.catalogue.service;
+
+import com.toomuch2learn.reactive.crud.catalogue.exception.InvalidRequestException;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position used to page through Catalogue Items ordered by name and id. Clients only ever see the encoded form
+ * which is an url safe base64 string of "id:name".
+ *
+ * @author Madan Narra
+ */
+@Getter
+class CatalogueItemCursor {
+
+    /**
+     * Position before the first item. Names can never be empty, so every item sorts after it.
+     */
+    static final CatalogueItemCursor START = new CatalogueItemCursor("", 0L);
+
+    private final String name;
+    private final Long id;
+
+    private CatalogueItemCursor(String name, Long id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    static CatalogueItemCursor after(CatalogueItem item) {
+        return new CatalogueItemCursor(item.getName(), item.getId());
+    }
+
+    static CatalogueItemCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return START;
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(':');
+
+            return new CatalogueItemCursor(value.substring(separator + 1), Long.valueOf(value.substring(0, separator)));
+        }
+        catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidRequestException(String.format("Invalid cursor provided :: %s", token), e);
+        }
+    }
+
+    String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((id + ":" + name).getBytes(StandardCharsets.UTF_8));
+    }
+}
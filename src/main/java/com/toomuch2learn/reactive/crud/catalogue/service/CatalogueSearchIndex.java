@@ -0,0 +1,365 @@
+package com.toomuch2learn.reactive.crud.catalogue.service;
+
+import com.toomuch2learn.reactive.crud.catalogue.configuration.SearchProperties;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEvent;
+import com.toomuch2learn.reactive.crud.catalogue.exception.InvalidRequestException;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueSearchResult;
+import com.toomuch2learn.reactive.crud.catalogue.model.Category;
+import com.toomuch2learn.reactive.crud.catalogue.repository.CatalogueBatchRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-process inverted index of Catalogue Items by the words of their name and description, answering searches without
+ * querying the database. The index is loaded from the database at startup and kept current from the CatalogueItemEvents
+ * relayed by the outbox, so it reflects changes made by every instance once their events are relayed.
+ *
+ * Every word of the query matches the indexed words starting with it, so partially typed words match as well, and
+ * items have to match all words of the query. Words are matched ignoring case and accents. Items are ranked by the sum
+ * of the best match of each query word, where a word in the name counts more than one in the description and a whole
+ * word counts more than a prefix.
+ *
+ * Searches run concurrently with updates, so an item changed while being searched may be matched on either version.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Component
+// Started after the outbox has taken its position, so every change committed after the index is loaded is relayed
+@DependsOn("catalogueItemEventOutbox")
+public class CatalogueSearchIndex implements ApplicationListener<CatalogueItemEvent>, SmartLifecycle {
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+
+    private final CatalogueBatchRepository batchRepository;
+    private final SearchProperties searchProperties;
+
+    private final Map<String, Document> documents = new ConcurrentHashMap<>();
+
+    // Weight of every item by word, sorted by word so words starting with a prefix are adjacent
+    private final ConcurrentSkipListMap<String, Map<String, Float>> postings = new ConcurrentSkipListMap<>();
+
+    // Events relayed while the index is loaded, applied once loading completes. Guarded by this, along with loaded
+    private final List<CatalogueItemEvent> pendingEvents = new ArrayList<>();
+    private boolean loaded;
+
+    CatalogueSearchIndex(
+        CatalogueBatchRepository batchRepository,
+        SearchProperties searchProperties,
+        MeterRegistry meterRegistry) {
+
+        this.batchRepository = batchRepository;
+        this.searchProperties = searchProperties;
+
+        Gauge.builder("catalogue.search.items", documents, Map::size)
+            .description("Number of catalogue items held by the search index")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Search Catalogue Items by the words of their name and description, matching partially typed words
+     *
+     * @param query words to search for
+     * @param category optional category to restrict matches to
+     * @param limit optional maximum number of items returned
+     * @return catalogueSearchResult
+     * @throws InvalidRequestException
+     */
+    public CatalogueSearchResult search(String query, String category, Integer limit) throws InvalidRequestException {
+        int size = resolveLimit(limit);
+        String resolvedCategory = category == null ? null : resolveCategory(category);
+
+        Set<String> words = new LinkedHashSet<>(tokenize(query));
+        if (words.isEmpty()) {
+            throw new InvalidRequestException(
+                String.format("Search query should contain at least one letter or digit :: %s", query));
+        }
+
+        // Intersect starting with the word matching the fewest items, so the scores kept are bounded by it
+        List<Map<String, Float>> matches = words
+            .stream()
+            .map(this::match)
+            .sorted(Comparator.comparingInt(Map::size))
+            .collect(Collectors.toList());
+
+        Map<String, Float> scores = new HashMap<>(matches.get(0));
+        for (Map<String, Float> match : matches.subList(1, matches.size())) {
+            scores.entrySet().removeIf(score -> !match.containsKey(score.getKey()));
+            scores.replaceAll((sku, score) -> score + match.get(sku));
+        }
+
+        Map<String, Long> categories = new HashMap<>();
+        List<Document> found = new ArrayList<>();
+        scores.keySet().forEach(sku -> {
+            Document document = documents.get(sku);
+            if (document != null) {
+                categories.merge(document.item.getCategory(), 1L, Long::sum);
+                if (resolvedCategory == null || resolvedCategory.equals(document.item.getCategory())) {
+                    found.add(document);
+                }
+            }
+        });
+
+        List<CatalogueItem> items = found
+            .stream()
+            .sorted(Comparator
+                .comparing((Document document) -> scores.get(document.item.getSku()), Comparator.reverseOrder())
+                .thenComparing(document -> document.item.getName())
+                .thenComparing(document -> document.item.getSku()))
+            .limit(size)
+            .map(document -> document.item)
+            .collect(Collectors.toList());
+
+        return new CatalogueSearchResult(items, found.size(), facets(categories));
+    }
+
+    @Override
+    public void onApplicationEvent(CatalogueItemEvent event) {
+        synchronized (this) {
+            if (!loaded) {
+                pendingEvents.add(event);
+                return;
+            }
+            apply(event);
+        }
+    }
+
+    /**
+     * Load the index from the database, failing to start if it is not loaded within the load timeout. Events relayed
+     * meanwhile are applied afterwards in the order relayed, so the latest change of every item wins whether it was
+     * committed before or after the item was read.
+     */
+    @Override
+    public void start() {
+        // Index held from before the index was stopped no longer reflects items deleted since
+        documents.clear();
+        postings.clear();
+
+        Duration loadTimeout = searchProperties.getLoadTimeout();
+        long items;
+        try {
+            items = batchRepository
+                .streamAll(searchProperties.getLoadFetchSize())
+                .doOnNext(this::index)
+                .count()
+                .blockOptional(loadTimeout)
+                .orElse(0L);
+        }
+        catch (IllegalStateException e) {
+            throw new IllegalStateException(String.format(
+                "Catalogue items could not be indexed for search within %s", loadTimeout), e);
+        }
+
+        synchronized (this) {
+            pendingEvents.forEach(this::apply);
+            pendingEvents.clear();
+            loaded = true;
+        }
+        log.info("Indexed {} catalogue items for search", items);
+    }
+
+    /**
+     * Events relayed once stopped are held until the index is started again and loaded afresh
+     */
+    @Override
+    public synchronized void stop() {
+        loaded = false;
+        pendingEvents.clear();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return loaded;
+    }
+
+    private void apply(CatalogueItemEvent event) {
+        event.getCatalogueItems().forEach(item -> {
+            Document current = documents.get(item.getSku());
+            switch (event.getEventType()) {
+                case CatalogueItemEvent.CATALOGUEITEM_CREATED:
+                    index(item);
+                    break;
+                case CatalogueItemEvent.CATALOGUEITEM_UPDATED:
+                    index(current == null ? item : updated(current.item, item));
+                    break;
+                case CatalogueItemEvent.CATALOGUEITEM_INVENTORY_CHANGED:
+                    if (current != null) {
+                        CatalogueItem changed = copy(current.item);
+                        changed.setInventory(item.getInventory());
+                        documents.put(item.getSku(), new Document(changed, current.weights));
+                    }
+                    break;
+                case CatalogueItemEvent.CATALOGUEITEM_DELETED:
+                    remove(item.getSku());
+                    break;
+                default:
+                    log.debug("Ignoring {} event for search index", event.getEventType());
+            }
+        });
+    }
+
+    private void index(CatalogueItem item) {
+        Map<String, Float> weights = new HashMap<>();
+        tokenize(item.getName()).forEach(word -> weights.put(word, NAME_WEIGHT));
+        tokenize(item.getDescription()).forEach(word -> weights.merge(word, DESCRIPTION_WEIGHT, Float::sum));
+
+        remove(item.getSku());
+        weights.forEach((word, weight) -> postings
+            .computeIfAbsent(word, key -> new ConcurrentHashMap<>())
+            .put(item.getSku(), weight));
+        documents.put(item.getSku(), new Document(item, weights));
+    }
+
+    private void remove(String sku) {
+        Document document = documents.remove(sku);
+        if (document != null) {
+            document.weights.keySet().forEach(word -> postings.computeIfPresent(word, (key, skus) -> {
+                skus.remove(sku);
+                return skus.isEmpty() ? null : skus;
+            }));
+        }
+    }
+
+    /**
+     * Best weight of every item having a word starting with the query word
+     */
+    private Map<String, Float> match(String word) {
+        Map<String, Float> weights = new HashMap<>();
+        postings
+            .subMap(word, true, word + Character.MAX_VALUE, false)
+            .forEach((indexed, skus) -> {
+                float factor = indexed.length() == word.length() ? 1f : PREFIX_MATCH_FACTOR;
+                skus.forEach((sku, weight) -> weights.merge(sku, weight * factor, Math::max));
+            });
+        return weights;
+    }
+
+    /**
+     * Updates carry the columns updated along with the SKU, so the rest is kept from the indexed item. The version and
+     * time of update are only taken from updates carrying the row as persisted, identified by its version, so a
+     * partial payload does not clear them
+     */
+    private CatalogueItem updated(CatalogueItem current, CatalogueItem update) {
+        CatalogueItem item = copy(current);
+        item.setName(update.getName());
+        item.setDescription(update.getDescription());
+        item.setPrice(update.getPrice());
+        item.setInventory(update.getInventory());
+        if (update.getVersion() != null) {
+            item.setUpdatedOn(update.getUpdatedOn());
+            item.setVersion(update.getVersion());
+        }
+        return item;
+    }
+
+    /**
+     * Indexed items are shared with searches in progress, so they are replaced rather than modified
+     */
+    private CatalogueItem copy(CatalogueItem item) {
+        CatalogueItem copy = new CatalogueItem();
+        copy.setId(item.getId());
+        copy.setSku(item.getSku());
+        copy.setName(item.getName());
+        copy.setDescription(item.getDescription());
+        copy.setCategory(item.getCategory());
+        copy.setPrice(item.getPrice());
+        copy.setInventory(item.getInventory());
+        copy.setCreatedOn(item.getCreatedOn());
+        copy.setUpdatedOn(item.getUpdatedOn());
+        copy.setVersion(item.getVersion());
+        return copy;
+    }
+
+    /**
+     * Counts by category in the order categories are declared
+     */
+    private Map<String, Long> facets(Map<String, Long> counts) {
+        Map<String, Long> facets = new LinkedHashMap<>();
+        for (Category category : Category.values()) {
+            Long count = counts.get(category.getValue());
+            if (count != null) {
+                facets.put(category.getValue(), count);
+            }
+        }
+        return facets;
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return searchProperties.getDefaultLimit();
+        }
+
+        if (limit < 1 || limit > searchProperties.getMaxLimit()) {
+            throw new InvalidRequestException(String.format(
+                "Search limit should be between 1 and %d :: %d", searchProperties.getMaxLimit(), limit));
+        }
+        return limit;
+    }
+
+    private String resolveCategory(String category) {
+        try {
+            return Category.valueOf(category.toUpperCase()).getValue();
+        }
+        catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(String.format("Invalid category provided :: %s", category), e);
+        }
+    }
+
+    /**
+     * Split text into lower case words without accents
+     */
+    private static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+
+        String normalized = ACCENTS
+            .matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+            .replaceAll("")
+            .toLowerCase(Locale.ROOT);
+        return Arrays
+            .stream(SEPARATORS.split(normalized))
+            .filter(word -> !word.isEmpty())
+            .collect(Collectors.toList());
+    }
+
+    private static class Document {
+
+        private final CatalogueItem item;
+        private final Map<String, Float> weights;
+
+        Document(CatalogueItem item, Map<String, Float> weights) {
+            this.item = item;
+            this.weights = weights;
+        }
+    }
+}
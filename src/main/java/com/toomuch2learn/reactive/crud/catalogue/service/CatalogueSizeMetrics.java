@@ -0,0 +1,103 @@
+package com.toomuch2learn.reactive.crud.catalogue.service;
+
+import com.toomuch2learn.reactive.crud.catalogue.configuration.InstrumentationProperties;
+import com.toomuch2learn.reactive.crud.catalogue.model.Category;
+import com.toomuch2learn.reactive.crud.catalogue.repository.CatalogueBatchRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the number of catalogue items by category as catalogue.items gauge, tagged by category. Items are counted
+ * periodically with a single query rather than when the gauge is read, so scraping metrics never waits on the
+ * database, and the counts include items written by every instance.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Component
+public class CatalogueSizeMetrics implements SmartLifecycle {
+
+    private final CatalogueBatchRepository batchRepository;
+    private final InstrumentationProperties instrumentationProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicLong> itemsByCategory = new ConcurrentHashMap<>();
+
+    private Disposable refreshing;
+
+    CatalogueSizeMetrics(
+        CatalogueBatchRepository batchRepository,
+        InstrumentationProperties instrumentationProperties,
+        MeterRegistry meterRegistry) {
+
+        this.batchRepository = batchRepository;
+        this.instrumentationProperties = instrumentationProperties;
+        this.meterRegistry = meterRegistry;
+
+        // Every category is published from the start, so categories without items read as 0 rather than missing
+        for (Category category : Category.values()) {
+            gauge(category.getValue());
+        }
+    }
+
+    /**
+     * Count items by category and update the gauges
+     *
+     * @return completion once the gauges are updated
+     */
+    public Mono<Void> refresh() {
+        return batchRepository
+            .countByCategory()
+            .doOnNext(counts -> itemsByCategory
+                .forEach((category, items) -> items.set(counts.getOrDefault(category, 0L))))
+            .doOnNext(counts -> counts
+                .forEach((category, items) -> gauge(category).set(items)))
+            .then();
+    }
+
+    @Override
+    public void start() {
+        refreshing = Flux
+            .interval(Duration.ZERO, instrumentationProperties.getCatalogueSizeRefreshInterval())
+            .onBackpressureDrop()
+            .concatMap(tick -> refresh()
+                .onErrorResume(e -> {
+                    log.error("Error occurred while counting catalogue items by category", e);
+                    return Mono.empty();
+                }), 1)
+            .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        if (refreshing != null) {
+            refreshing.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return refreshing != null && !refreshing.isDisposed();
+    }
+
+    private AtomicLong gauge(String category) {
+        return itemsByCategory.computeIfAbsent(category, key -> {
+            AtomicLong items = new AtomicLong();
+            Gauge.builder("catalogue.items", items, AtomicLong::get)
+                .description("Number of catalogue items by category")
+                .tag("category", key)
+                .register(meterRegistry);
+            return items;
+        });
+    }
+}
@@ -2,57 +2,338 @@ package com.toomuch2learn.reactive.crud.catalogue.service;
 
 import com.toomuch2learn.reactive.crud.catalogue.configuration.FileStorageProperties;
 import com.toomuch2learn.reactive.crud.catalogue.exception.FileStorageException;
+import com.toomuch2learn.reactive.crud.catalogue.exception.PayloadTooLargeException;
+import com.toomuch2learn.reactive.crud.catalogue.model.ImageBlob;
+import com.toomuch2learn.reactive.crud.catalogue.model.StoredFile;
+import com.toomuch2learn.reactive.crud.catalogue.repository.ImageBlobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.nio.channels.AsynchronousFileChannel;
+import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Class to handle file upload
+ * Class to handle file upload. Files are content addressed, so identical uploads are stored once. Each file is
+ * streamed to a temporary file while its size is checked and checksum is computed, and moved into the store under its
+ * checksum once completely written, so a stored file is never partial.
+ *
+ * Store is sharded into directories by the first two bytes of the checksum to keep directories small. Stored files are
+ * registered as {@link ImageBlob}, and blobs no longer referenced by any image are deleted periodically once their
+ * grace period has passed, along with the files derived from them. Derived files left behind by a blob already deleted
+ * are swept along with the blobs of their directory.
+ *
+ * Blocking file system calls are made on the bounded elastic scheduler.
  *
  * @author Madan Narra
  */
 @Service
 @Slf4j
-public class FileStorageService {
+public class FileStorageService implements SmartLifecycle {
+
+    private static final String BLOBS_DIRECTORY = "blobs";
+    private static final String TEMP_DIRECTORY = "tmp";
 
     private final Path fileStorageLocation;
+    private final Path tempLocation;
+    private final FileStorageProperties fileStorageProperties;
+    private final ImageBlobRepository blobRepository;
+    private final Counter deduplicated;
+    private final Counter collected;
+    private final Counter uploaded;
+    private final Set<Path> collectingBlobs = ConcurrentHashMap.newKeySet();
+
+    private Disposable collector;
 
     @Autowired
-    public FileStorageService(FileStorageProperties fileStorageProperties) throws Exception {
+    public FileStorageService(
+        FileStorageProperties fileStorageProperties,
+        ImageBlobRepository blobRepository,
+        MeterRegistry meterRegistry) throws Exception {
+
         this.fileStorageLocation
             = Paths
                 .get(fileStorageProperties.getUploadLocation())
                 .toAbsolutePath()
                 .normalize();
+        this.tempLocation = fileStorageLocation.resolve(TEMP_DIRECTORY);
+        this.fileStorageProperties = fileStorageProperties;
+        this.blobRepository = blobRepository;
+        this.deduplicated = Counter.builder("catalogue.images.blobs.deduplicated")
+            .description("Number of uploads whose content was already stored")
+            .register(meterRegistry);
+        this.collected = Counter.builder("catalogue.images.blobs.collected")
+            .description("Number of blobs deleted as no image references them")
+            .register(meterRegistry);
+        this.uploaded = Counter.builder("catalogue.images.uploads")
+            .description("Bytes of uploaded files received, counted as they arrive")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+
+        Files.createDirectories(tempLocation);
     }
 
-    public Mono<String> storeFile(FilePart filePart) throws FileStorageException {
+    /**
+     * Store the file part, completing once it is written. Content which is already stored is not written again.
+     *
+     * @param filePart
+     * @return storedFile
+     * @throws FileStorageException
+     * @throws PayloadTooLargeException if the file exceeds the maximum file size
+     */
+    public Mono<StoredFile> storeFile(FilePart filePart) throws FileStorageException, PayloadTooLargeException {
+        long maxFileSize = fileStorageProperties.getMaxFileSize().toBytes();
+        MessageDigest digest = sha256();
+        AtomicLong contentLength = new AtomicLong();
 
-        log.debug("===> service storeFile :: Begin");
-        Mono<String> fileName = null;
-        try {
-            Path uploadedFilePath = Files.createTempFile(fileStorageLocation, null, filePart.filename());
+        return Mono
+            .fromCallable(() -> Files.createTempFile(tempLocation, "upload-", ".tmp"))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(tempFile -> DataBufferUtils
+                .write(
+                    filePart.content().<DataBuffer>handle((buffer, sink) -> {
+                        uploaded.increment(buffer.readableByteCount());
+                        if (contentLength.addAndGet(buffer.readableByteCount()) > maxFileSize) {
+                            DataBufferUtils.release(buffer);
+                            sink.error(new PayloadTooLargeException(String.format(
+                                "File %s exceeds the maximum size of %d bytes", filePart.filename(), maxFileSize)));
+                            return;
+                        }
+                        digest.update(buffer.asByteBuffer());
+                        sink.next(buffer);
+                    }),
+                    tempFile,
+                    StandardOpenOption.WRITE)
+                .then(Mono.defer(() -> {
+                    String checksum = toHex(digest.digest());
+                    // Blob is registered before it is moved into the store, so it is never collected in between
+                    return blobRepository
+                        .register(checksum, contentLength.get(), Instant.now())
+                        .then(Mono
+                            .fromCallable(() -> moveToStore(tempFile, checksum))
+                            .subscribeOn(Schedulers.boundedElastic()))
+                        .map(fileName -> {
+                            log.debug("Finished saving file {} as {}", filePart.filename(), fileName);
+                            return new StoredFile(fileName, contentLength.get(), checksum);
+                        });
+                }))
+                .onErrorResume(e -> delete(tempFile).then(Mono.error(e))))
+            .onErrorMap(IOException.class, e -> {
+                log.error("===> Error occurred while saving file {} ", filePart.filename(), e);
+                return new FileStorageException(
+                    String.format("Error occurred while saving file %s ", filePart.filename()), e);
+            });
+    }
 
-            AsynchronousFileChannel channel = AsynchronousFileChannel.open(uploadedFilePath, StandardOpenOption.WRITE);
-            DataBufferUtils.write(filePart.content(), channel, 0)
-            .doOnComplete(() -> {
-                log.debug("Finished saving file to {}", uploadedFilePath.toAbsolutePath());
-            })
+    /**
+     * Get stored file as a resource, which is written to the response using zero-copy transfer when the server
+     * supports it
+     *
+     * @param fileName
+     * @return resource
+     */
+    public Resource loadFile(String fileName) {
+        return new FileSystemResource(fileStorageLocation.resolve(fileName));
+    }
+
+    /**
+     * Get path of a file derived from a stored file, such as its rendition. Derived files are kept next to the stored
+     * file and deleted along with it.
+     *
+     * @param fileName
+     * @param suffix name of the derived file, unique for the stored file
+     * @return path
+     */
+    public Path derivedPath(String fileName, String suffix) {
+        return fileStorageLocation.resolve(fileName + "-" + suffix);
+    }
+
+    /**
+     * Get path of a stored file
+     *
+     * @param fileName
+     * @return path
+     */
+    public Path resolve(String fileName) {
+        return fileStorageLocation.resolve(fileName);
+    }
+
+    /**
+     * Check the file is stored and not being deleted as no image references it, so files derived from it are not
+     * produced for a file about to be deleted
+     *
+     * @param fileName
+     * @return true if the file is stored
+     */
+    public boolean isStored(String fileName) {
+        Path path = fileStorageLocation.resolve(fileName);
+        return !collectingBlobs.contains(path) && Files.exists(path);
+    }
+
+    /**
+     * Delete blobs which are no longer referenced by any image and were not stored within the grace period
+     *
+     * @param gracePeriod
+     * @return number of blobs deleted
+     */
+    public Mono<Long> collectGarbage(Duration gracePeriod) {
+        Instant before = Instant.now().minus(gracePeriod);
+
+        return blobRepository
+            .findOrphanedBefore(before, fileStorageProperties.getGcBatchSize())
+            .concatMap(blob -> collect(blob.getChecksum(), before))
+            .filter(Boolean::booleanValue)
+            .count()
+            .doOnNext(count -> {
+                collected.increment(count);
+                if (count > 0) {
+                    log.debug("Deleted {} image blobs no longer referenced", count);
+                }
+            });
+    }
+
+    @Override
+    public void start() {
+        collector = Flux
+            .interval(fileStorageProperties.getGcInterval())
+            .concatMap(tick -> collectGarbage(fileStorageProperties.getGcGracePeriod())
+                .onErrorResume(e -> {
+                    log.error("Error occurred while deleting image blobs no longer referenced", e);
+                    return Mono.empty();
+                }))
             .subscribe();
+    }
 
-            fileName = Mono.just(uploadedFilePath.toAbsolutePath().toString());
+    @Override
+    public void stop() {
+        if (collector != null) {
+            collector.dispose();
         }
-        catch (Exception e) {
-            log.error("===> Error occurred while saving file {} ", filePart.filename(), e);
-            throw new FileStorageException(String.format("Error occurred while saving file %s ", filePart.filename()));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return collector != null && !collector.isDisposed();
+    }
+
+    /**
+     * Blob is moved aside before it is unregistered, and moved back if it was referenced or stored again meanwhile. An
+     * upload of the same content either registers it before it is unregistered, or finds it missing and stores it.
+     */
+    private Mono<Boolean> collect(String checksum, Instant before) {
+        Path blob = fileStorageLocation.resolve(blobName(checksum));
+        Path collecting = tempLocation.resolve(checksum + ".gc");
+
+        return Mono
+            .fromCallable(() -> {
+                collectingBlobs.add(blob);
+                return Files.exists(blob) && Files.move(blob, collecting) != null;
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(moved -> blobRepository
+                .deleteOrphaned(checksum, before)
+                .flatMap(deleted -> Mono
+                    .fromCallable(() -> {
+                        if (deleted > 0) {
+                            Files.deleteIfExists(collecting);
+                            deleteDerived(blob);
+                            return true;
+                        }
+                        if (moved) {
+                            Files.move(collecting, blob, StandardCopyOption.ATOMIC_MOVE);
+                        }
+                        return false;
+                    })
+                    .subscribeOn(Schedulers.boundedElastic())))
+            .doFinally(signal -> collectingBlobs.remove(blob));
+    }
+
+    /**
+     * Delete files derived from the blob, along with files in its directory derived from any other blob which is no
+     * longer stored, such as a rendition written while its blob was being deleted
+     */
+    private void deleteDerived(Path blob) throws IOException {
+        if (!Files.isDirectory(blob.getParent())) {
+            return;
+        }
+        try (DirectoryStream<Path> derived = Files.newDirectoryStream(blob.getParent(), "*-*")) {
+            for (Path path : derived) {
+                String fileName = path.getFileName().toString();
+                Path source = blob.resolveSibling(fileName.substring(0, fileName.indexOf('-')));
+                if (source.equals(blob) || (!collectingBlobs.contains(source) && !Files.exists(source))) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move completely written file into the store under its checksum, discarding it if the content is already stored
+     *
+     * @return name of the file relative to the storage location
+     */
+    private String moveToStore(Path tempFile, String checksum) throws IOException {
+        String fileName = blobName(checksum);
+        Path blob = fileStorageLocation.resolve(fileName);
+
+        if (Files.exists(blob)) {
+            Files.delete(tempFile);
+            deduplicated.increment();
+        }
+        else {
+            Files.createDirectories(blob.getParent());
+            // Concurrent upload of the same content replaces it with identical content
+            Files.move(tempFile, blob, StandardCopyOption.ATOMIC_MOVE);
         }
-        log.debug("===> service storeFile :: End");
         return fileName;
     }
+
+    private String blobName(String checksum) {
+        return String.join(
+            "/", BLOBS_DIRECTORY, checksum.substring(0, 2), checksum.substring(2, 4), checksum);
+    }
+
+    private Mono<Void> delete(Path path) {
+        return Mono
+            .fromCallable(() -> Files.deleteIfExists(path))
+            .subscribeOn(Schedulers.boundedElastic())
+            .onErrorResume(IOException.class, e -> {
+                log.warn("Error occurred while deleting file {}", path, e);
+                return Mono.just(false);
+            })
+            .then();
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toHex(byte[] bytes) {
+        return String.format("%0" + (bytes.length * 2) + "x", new BigInteger(1, bytes));
+    }
 }
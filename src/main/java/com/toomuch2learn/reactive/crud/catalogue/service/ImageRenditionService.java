@@ -0,0 +1,275 @@
+package com.toomuch2learn.reactive.crud.catalogue.service;
+
+import com.toomuch2learn.reactive.crud.catalogue.configuration.ImageRenditionProperties;
+import com.toomuch2learn.reactive.crud.catalogue.exception.ResourceNotFoundException;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemImage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class to produce renditions of Catalogue Item images at the configured sizes. Renditions are produced in the
+ * background once an image is stored, on a bounded pool of worker threads so resizing never runs on request threads,
+ * and cached on disk next to the stored image. Renditions not produced yet are produced on the same workers when
+ * first requested, and concurrent requests for the same rendition wait for a single resize.
+ *
+ * Renditions are derived from the image content, so images with the same content share them, and they are deleted
+ * along with the stored image. Renditions are not produced for an image no longer stored or being deleted, and a
+ * rendition written while its image was being deleted is deleted again.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Service
+public class ImageRenditionService implements DisposableBean {
+
+    private final FileStorageService fileStorageService;
+    private final ImageRenditionProperties renditionProperties;
+    private final Scheduler workers;
+    private final Timer renderTimer;
+    private final Map<Path, Mono<Path>> rendering = new ConcurrentHashMap<>();
+
+    ImageRenditionService(
+        FileStorageService fileStorageService,
+        ImageRenditionProperties renditionProperties,
+        MeterRegistry meterRegistry) {
+
+        this.fileStorageService = fileStorageService;
+        this.renditionProperties = renditionProperties;
+        this.workers = Schedulers.newBoundedElastic(
+            renditionProperties.getConcurrency(), renditionProperties.getQueueSize(), "image-renditions");
+        this.renderTimer = Timer.builder("catalogue.images.renditions.render")
+            .description("Time taken to produce all renditions of an image")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Produce all configured renditions of the image in the background, reading the image once
+     *
+     * @param image
+     */
+    public void render(CatalogueItemImage image) {
+        Mono
+            .fromRunnable(() -> renderTimer.record(() -> renderAll(image)))
+            .subscribeOn(workers)
+            .subscribe(
+                null,
+                e -> log.warn("Error occurred while producing renditions of image {}", image.getChecksum(), e));
+    }
+
+    /**
+     * Get rendition of the image, produced on the workers if it does not exist yet
+     *
+     * @param image
+     * @param rendition name of the rendition
+     * @return resource, or ResourceNotFoundException if the rendition is not configured, the image is no longer stored,
+     * or the image cannot be decoded or is larger than allowed
+     */
+    public Mono<Resource> getRendition(CatalogueItemImage image, String rendition) {
+        Integer size = renditionProperties.getSizes().get(rendition);
+        if (size == null) {
+            return Mono.error(new ResourceNotFoundException(String.format(
+                "Image rendition should be one of %s :: %s", renditionProperties.getSizes().keySet(), rendition)));
+        }
+
+        Path path = renditionPath(image, rendition);
+        return Mono
+            .fromCallable(() -> {
+                checkStored(image);
+                return Files.exists(path);
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(exists -> exists
+                ? Mono.just(path)
+                : rendering.computeIfAbsent(path, key -> Mono
+                    .fromCallable(() -> {
+                        BufferedImage source = read(image);
+                        if (source == null) {
+                            throw new ResourceNotFoundException(String.format(
+                                "Image rendition is not available for content type %s", image.getContentType()));
+                        }
+                        write(resize(source, size), image, path);
+                        return path;
+                    })
+                    .subscribeOn(workers)
+                    .doFinally(signal -> rendering.remove(key))
+                    .cache()))
+            .map(FileSystemResource::new);
+    }
+
+    /**
+     * Renditions of JPEG images are JPEG, and of other images PNG to retain transparency
+     *
+     * @param image
+     * @return contentType
+     */
+    public MediaType renditionContentType(CatalogueItemImage image) {
+        return isJpeg(image) ? MediaType.IMAGE_JPEG : MediaType.IMAGE_PNG;
+    }
+
+    @Override
+    public void destroy() {
+        workers.dispose();
+    }
+
+    private void renderAll(CatalogueItemImage image) {
+        try {
+            checkStored(image);
+            BufferedImage source = null;
+            for (Map.Entry<String, Integer> rendition : renditionProperties.getSizes().entrySet()) {
+                Path path = renditionPath(image, rendition.getKey());
+                if (Files.exists(path)) {
+                    continue;
+                }
+                if (source == null && (source = read(image)) == null) {
+                    log.debug("Skipping renditions of image {} with content type {} which cannot be decoded",
+                        image.getChecksum(), image.getContentType());
+                    return;
+                }
+                write(resize(source, rendition.getValue()), image, path);
+            }
+        }
+        catch (ResourceNotFoundException e) {
+            log.warn("Skipping renditions of image {} :: {}", image.getChecksum(), e.getMessage());
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Read the image, checking its dimensions from the header first so an image decoding to more pixels than allowed
+     * is never decoded
+     *
+     * @return image, or null if no reader can decode it
+     * @throws ResourceNotFoundException if the image is larger than allowed
+     */
+    private BufferedImage read(CatalogueItemImage image) throws IOException, ResourceNotFoundException {
+        try {
+            return decode(image);
+        }
+        catch (IOException e) {
+            // Image deleted once no longer referenced while being read
+            checkStored(image);
+            throw e;
+        }
+    }
+
+    private BufferedImage decode(CatalogueItemImage image) throws IOException, ResourceNotFoundException {
+        try (ImageInputStream input
+                 = ImageIO.createImageInputStream(fileStorageService.resolve(image.getFileName()).toFile())) {
+
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > renditionProperties.getMaxPixels()) {
+                    throw new ResourceNotFoundException(String.format(
+                        "Image rendition is not available for images over %d pixels :: %dx%d",
+                        renditionProperties.getMaxPixels(), width, height));
+                }
+                return reader.read(0);
+            }
+            finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale image down to fit within size, keeping its aspect ratio
+     */
+    private BufferedImage resize(BufferedImage source, int size) {
+        double scale = Math.min(1d, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage target = new BufferedImage(
+            width, height, source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        }
+        finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Rendition is written to a temporary file and moved in place, so a partially written rendition is never served.
+     * Image is checked again once the rendition is in place, as deleting the image may have deleted its renditions
+     * before this one was written.
+     */
+    private void write(BufferedImage rendition, CatalogueItemImage image, Path path)
+        throws IOException, ResourceNotFoundException {
+
+        BufferedImage output = rendition;
+        if (isJpeg(image) && rendition.getColorModel().hasAlpha()) {
+            // JPEG writer does not support alpha, which an image uploaded with a mismatching content type may have
+            output = new BufferedImage(rendition.getWidth(), rendition.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = output.createGraphics();
+            graphics.drawImage(rendition, 0, 0, null);
+            graphics.dispose();
+        }
+
+        Path tempFile = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            ImageIO.write(output, isJpeg(image) ? "jpg" : "png", tempFile.toFile());
+            Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        if (!fileStorageService.isStored(image.getFileName())) {
+            Files.deleteIfExists(path);
+            checkStored(image);
+        }
+    }
+
+    private void checkStored(CatalogueItemImage image) throws ResourceNotFoundException {
+        if (!fileStorageService.isStored(image.getFileName())) {
+            throw new ResourceNotFoundException(String.format(
+                "Image rendition is not available as the image is no longer stored :: %s", image.getChecksum()));
+        }
+    }
+
+    private Path renditionPath(CatalogueItemImage image, String rendition) {
+        return fileStorageService.derivedPath(image.getFileName(), rendition + (isJpeg(image) ? ".jpg" : ".png"));
+    }
+
+    private boolean isJpeg(CatalogueItemImage image) {
+        return MediaType.IMAGE_JPEG_VALUE.equals(image.getContentType());
+    }
+}
@@ -1,4 +1,3 @@
-DROP TABLE IF EXISTS CATALOGUE_ITEMS;
 CREATE TABLE CATALOGUE_ITEMS (
     ID INT PRIMARY KEY AUTO_INCREMENT NOT NULL,
     SKU_NUMBER VARCHAR(16) NOT NULL,
@@ -9,4 +8,4 @@ CREATE TABLE CATALOGUE_ITEMS (
     INVENTORY INT NOT NULL,
     CREATED_ON TIMESTAMP NOT NULL DEFAULT NOW(),
     UPDATED_ON TIMESTAMP
-);
\ No newline at end of file
+);
@@ -0,0 +1,3 @@
+CREATE UNIQUE INDEX UK_CATALOGUE_ITEMS_SKU_NUMBER ON CATALOGUE_ITEMS(SKU_NUMBER);
+CREATE INDEX IDX_CATALOGUE_ITEMS_NAME_ID ON CATALOGUE_ITEMS(ITEM_NAME, ID);
+CREATE INDEX IDX_CATALOGUE_ITEMS_CATEGORY_NAME_ID ON CATALOGUE_ITEMS(CATEGORY, ITEM_NAME, ID);
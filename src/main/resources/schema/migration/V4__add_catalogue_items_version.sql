@@ -0,0 +1 @@
+ALTER TABLE CATALOGUE_ITEMS ADD COLUMN VERSION BIGINT DEFAULT 0 NOT NULL;
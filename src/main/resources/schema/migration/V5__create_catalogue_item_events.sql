@@ -0,0 +1,8 @@
+CREATE TABLE CATALOGUE_ITEM_EVENTS (
+    ID BIGINT PRIMARY KEY AUTO_INCREMENT NOT NULL,
+    EVENT_TYPE VARCHAR(32) NOT NULL,
+    PAYLOAD VARCHAR NOT NULL,
+    CREATED_ON TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IDX_CATALOGUE_ITEM_EVENTS_CREATED_ON ON CATALOGUE_ITEM_EVENTS(CREATED_ON);
@@ -0,0 +1,13 @@
+CREATE TABLE CATALOGUE_ITEM_IMAGES (
+    ID BIGINT PRIMARY KEY AUTO_INCREMENT NOT NULL,
+    SKU_NUMBER VARCHAR(16) NOT NULL,
+    FILE_NAME VARCHAR(255) NOT NULL,
+    CONTENT_TYPE VARCHAR(100) NOT NULL,
+    CONTENT_LENGTH BIGINT NOT NULL,
+    CHECKSUM VARCHAR(64) NOT NULL,
+    UPLOADED_ON TIMESTAMP NOT NULL DEFAULT NOW(),
+    CONSTRAINT FK_CATALOGUE_ITEM_IMAGES_SKU_NUMBER
+        FOREIGN KEY (SKU_NUMBER) REFERENCES CATALOGUE_ITEMS(SKU_NUMBER) ON DELETE CASCADE
+);
+
+CREATE UNIQUE INDEX UK_CATALOGUE_ITEM_IMAGES_SKU_NUMBER ON CATALOGUE_ITEM_IMAGES(SKU_NUMBER);
@@ -0,0 +1,8 @@
+CREATE TABLE IMAGE_BLOBS (
+    CHECKSUM VARCHAR(64) PRIMARY KEY NOT NULL,
+    CONTENT_LENGTH BIGINT NOT NULL,
+    STORED_ON TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IDX_IMAGE_BLOBS_STORED_ON ON IMAGE_BLOBS(STORED_ON);
+CREATE INDEX IDX_CATALOGUE_ITEM_IMAGES_CHECKSUM ON CATALOGUE_ITEM_IMAGES(CHECKSUM);
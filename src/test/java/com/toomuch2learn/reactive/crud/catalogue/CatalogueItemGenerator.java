@@ -1,10 +1,13 @@
 package com.toomuch2learn.reactive.crud.catalogue;
 
 import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.model.Category;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 
 public class CatalogueItemGenerator {
@@ -15,6 +18,18 @@ public class CatalogueItemGenerator {
         return generateCatalogueItem(1000l);
     }
 
+    /**
+     * Generate sample Catalogue Item with the provided SKU and no id, ready to be created through the API
+     *
+     * @return catalogueItem
+     */
+    public static CatalogueItem generateCatalogueItem(String sku) {
+        CatalogueItem item = generateCatalogueItem((Long) null);
+        item.setSku(sku);
+
+        return item;
+    }
+
     /**
      * Generate sample Catalogue Item which will be used in test classes
      *
@@ -40,4 +55,36 @@ public class CatalogueItemGenerator {
                 return generateCatalogueItem(value);
             }).collect(Collectors.toList());
     }
+
+    /**
+     * Generate Catalogue Items with distinct SKUs and no id, with category, price and inventory varying by item. Values
+     * are derived from the seed, so the same items are generated for the same seed.
+     *
+     * @return catalogueItems
+     */
+    public static List<CatalogueItem> generateCatalogueItems(String skuPrefix, int count, long seed) {
+        Random random = new Random(seed);
+        return
+            IntStream.range(0, count).mapToObj(value -> {
+                return generateCatalogueItem(skuPrefix + value, random);
+            }).collect(Collectors.toList());
+    }
+
+    /**
+     * Generate sample Catalogue Item with the provided SKU and no id, with values varying by the random provided
+     *
+     * @return catalogueItem
+     */
+    public static CatalogueItem generateCatalogueItem(String sku, Random random) {
+        Category[] categories = Category.values();
+
+        CatalogueItem item = generateCatalogueItem(sku);
+        item.setName("Item Name " + sku);
+        item.setDescription("Item Desc " + sku);
+        item.setCategory(categories[random.nextInt(categories.length)].getValue());
+        item.setInventory(random.nextInt(1000));
+        item.setPrice(Math.round(random.nextDouble() * 100000) / 100.0);
+
+        return item;
+    }
 }
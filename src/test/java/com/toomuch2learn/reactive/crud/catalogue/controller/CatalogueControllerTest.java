@@ -1,40 +1,104 @@
 package com.toomuch2learn.reactive.crud.catalogue.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.toomuch2learn.reactive.crud.catalogue.CatalogueItemGenerator;
 import com.toomuch2learn.reactive.crud.catalogue.SpringReactiveCrudCatalogueApplication;
-import com.toomuch2learn.reactive.crud.catalogue.exception.FileStorageException;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.CatalogueMediaTypes;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.ImageRenditionProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.OutboxProperties;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.StreamProperties;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEvent;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventBatch;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventConflator;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventFilter;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventOutbox;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEventPublisher;
+import com.toomuch2learn.reactive.crud.catalogue.event.SubscriberOverflowStrategy;
+import com.toomuch2learn.reactive.crud.catalogue.exception.InvalidRequestException;
 import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemImage;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemEventRecord;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItemPage;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueSearchResult;
+import com.toomuch2learn.reactive.crud.catalogue.model.InventoryAdjustment;
+import com.toomuch2learn.reactive.crud.catalogue.model.SkuReference;
+import com.toomuch2learn.reactive.crud.catalogue.repository.CatalogueItemEventRepository;
+import com.toomuch2learn.reactive.crud.catalogue.repository.ImageBlobRepository;
 import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueCrudService;
+import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueItemCache;
+import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueSearchIndex;
+import com.toomuch2learn.reactive.crud.catalogue.service.CatalogueSizeMetrics;
 import com.toomuch2learn.reactive.crud.catalogue.service.FileStorageService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
-import static org.mockito.Mockito.*;
-
 import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.context.ApplicationContext;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.reactive.server.FluxExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
 import static com.toomuch2learn.reactive.crud.catalogue.controller.CatalogueControllerAPIPaths.*;
+import static org.assertj.core.api.Assertions.assertThat;
 
 @Slf4j
 @SpringBootTest(
     classes = SpringReactiveCrudCatalogueApplication.class,
-    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    // Schema migrations retain data, so each context gets its own in-memory database
+    properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///cataloguedb-${random.uuid}",
+        "file.upload-location=target/uploads",
+        "file.max-file-size=1KB"
+    }
 )
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -46,11 +110,53 @@ public class CatalogueControllerTest {
     @LocalServerPort
     int port;
 
-    @MockBean
+    @Autowired
+    private CatalogueCrudService catalogueCrudService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CatalogueItemEventPublisher eventPublisher;
+
+    @Autowired
+    private CatalogueItemEventConflator eventConflator;
+
+    @Autowired
+    private CatalogueItemEventOutbox eventOutbox;
+
+    @Autowired
+    private OutboxProperties outboxProperties;
+
+    @Autowired
+    private StreamProperties streamProperties;
+
+    @Autowired
+    private ImageRenditionProperties renditionProperties;
+
+    @Autowired
+    private CatalogueItemEventRepository eventRepository;
+
+    @Autowired
+    private CatalogueItemCache catalogueItemCache;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
     private FileStorageService fileStorageService;
 
     @Autowired
-    private CatalogueCrudService catalogueCrudService;
+    private CatalogueSizeMetrics catalogueSizeMetrics;
+
+    @Autowired
+    private CatalogueSearchIndex catalogueSearchIndex;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
 
     @Autowired
     public void setApplicationContext(ApplicationContext context) {
@@ -123,6 +229,166 @@ public class CatalogueControllerTest {
             .verify();
     }
 
+    /**
+     * Test method to validate items are streamed in chunks of the requested size, limited to the requested rate
+     */
+    @Test
+    @Order(31)
+    public void testGetCatalogueItemChunksStream() {
+
+        // Response headers are only received along with the first chunk, so time is measured from before the request
+        long started = System.nanoTime();
+        FluxExchangeResult<List<CatalogueItem>> result
+            = this.client
+                .get()
+                .uri(uriBuilder -> uriBuilder
+                    .path(GET_ITEMS_STREAM_CHUNKS)
+                    .queryParam("size", 2)
+                    .queryParam("rate", 20)
+                    .build())
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<List<CatalogueItem>>() {});
+
+        // Chunks of 2 items at 20 items per second are each delayed by 100ms, so the third cannot arrive sooner than
+        // 300ms after the request
+        StepVerifier
+            .create(result.getResponseBody())
+            .assertNext(chunk -> assertThat(chunk)
+                .extracting(CatalogueItem::getId)
+                .containsExactly(1L, 2L))
+            .assertNext(chunk -> assertThat(chunk)
+                .extracting(CatalogueItem::getId)
+                .containsExactly(3L, 4L))
+            .assertNext(chunk -> assertThat(chunk).hasSize(2))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThanOrEqualTo(Duration.ofMillis(300));
+    }
+
+    /**
+     * Test method to validate stream request with invalid rate or chunk size
+     */
+    @Test
+    @Order(32)
+    public void testGetCatalogueItemsStreamWithInvalidParameters() {
+
+        this.client
+            .get()
+            .uri(uriBuilder -> uriBuilder.path(GET_ITEMS_STREAM).queryParam("rate", 0).build())
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        // Below the minimum rate
+        this.client
+            .get()
+            .uri(uriBuilder -> uriBuilder.path(GET_ITEMS_STREAM).queryParam("rate", 5).build())
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        this.client
+            .get()
+            .uri(uriBuilder -> uriBuilder.path(GET_ITEMS_STREAM_CHUNKS).queryParam("size", 100000).build())
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    /**
+     * Test streams beyond the configured maximum are rejected while others hold their database connection
+     */
+    @Test
+    @Order(33)
+    public void testGetCatalogueItemsStreamRejectedWhenTooManyOpen() {
+
+        streamProperties.setMaxConcurrentStreams(1);
+
+        FluxExchangeResult<CatalogueItem> open = this.client
+            .get()
+            .uri(uriBuilder -> uriBuilder.path(GET_ITEMS_STREAM).queryParam("rate", 10).build())
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(CatalogueItem.class);
+
+        this.client
+            .get()
+            .uri(GET_ITEMS_STREAM)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+        StepVerifier
+            .create(open.getResponseBody())
+            .expectNextCount(1)
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @Order(35)
+    public void testGetCatalogueItemsPage() {
+
+        CatalogueItemPage firstPage
+            = this.client
+                .get()
+                .uri(uriBuilder -> uriBuilder.path(GET_ITEMS_PAGE).queryParam("size", 2).build())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CatalogueItemPage.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(firstPage.getItems()).extracting(CatalogueItem::getId).containsExactly(1l, 2l);
+        assertThat(firstPage.getNextCursor()).isNotEmpty();
+
+        this.client
+            .get()
+            .uri(uriBuilder ->
+                uriBuilder
+                    .path(GET_ITEMS_PAGE)
+                    .queryParam("size", 2)
+                    .queryParam("cursor", firstPage.getNextCursor())
+                    .queryParam("category", "books")
+                    .build())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.items.length()").isEqualTo(2)
+            .jsonPath("$.items[0].id").isEqualTo(3)
+            .jsonPath("$.items[1].id").isEqualTo(4)
+            .jsonPath("$.nextCursor").isNotEmpty();
+    }
+
+    /**
+     * Test method to validate page request with page size beyond the allowed limit
+     */
+    @Test
+    @Order(36)
+    public void testGetCatalogueItemsPageWithInvalidSize() {
+
+        this.client
+            .get()
+            .uri(uriBuilder -> uriBuilder.path(GET_ITEMS_PAGE).queryParam("size", 100000).build())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON);
+
+        // Invalid requests are signalled as errors rather than thrown while assembling the page
+        StepVerifier
+            .create(catalogueCrudService.getCatalogueItems(null, 0, null, null, null))
+            .expectError(InvalidRequestException.class)
+            .verify();
+        StepVerifier
+            .create(catalogueCrudService.getCatalogueItems(null, null, "INVALID", null, null))
+            .expectError(InvalidRequestException.class)
+            .verify();
+    }
+
     @Test
     @Order(40)
     public void testCreateCatalogueItem() {
@@ -153,6 +419,140 @@ public class CatalogueControllerTest {
             .expectStatus().isOk();
     }
 
+    /**
+     * Test update is written before the response is sent, so the updated item is returned right after
+     */
+    @Test
+    @Order(41)
+    public void testUpdateCatalogueItemIsVisibleOnceUpdated() throws Exception {
+        createCatalogueItem();
+
+        this.client
+            .get()
+            .uri(replaceSKU(GET_ITEM))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk();
+
+        CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem();
+        item.setName("Updated Item Name");
+
+        this.client
+            .put()
+            .uri(replaceSKU(UPDATE))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Mono.just(item), CatalogueItem.class)
+            .exchange()
+            .expectStatus().isOk();
+
+        this.client
+            .get()
+            .uri(replaceSKU(GET_ITEM))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.name").isEqualTo("Updated Item Name");
+    }
+
+    @Test
+    @Order(42)
+    public void testUpdateCatalogueItemNotFound() {
+
+        this.client
+            .put()
+            .uri(UPDATE.replaceAll("\\{sku\\}", "INVALID"))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Mono.just(CatalogueItemGenerator.generateCatalogueItem()), CatalogueItem.class)
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    /**
+     * Test update with If-Match succeeds only when a strong ETag of the list is the current version of the item
+     */
+    @Test
+    @Order(43)
+    public void testUpdateCatalogueItemWithIfMatch() throws Exception {
+        createCatalogueItem();
+
+        String eTag = this.client
+            .get()
+            .uri(replaceSKU(GET_ITEM))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(CatalogueItem.class)
+            .getResponseHeaders()
+            .getETag();
+
+        assertThat(eTag).isNotNull();
+
+        CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem();
+
+        String updatedETag = this.client
+            .put()
+            .uri(replaceSKU(UPDATE))
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Mono.just(item), CatalogueItem.class)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(Void.class)
+            .getResponseHeaders()
+            .getETag();
+
+        assertThat(updatedETag).isNotNull();
+        assertThat(updatedETag).isNotEqualTo(eTag);
+
+        // Stale ETag is rejected
+        this.client
+            .put()
+            .uri(replaceSKU(UPDATE))
+            .header(HttpHeaders.IF_MATCH, eTag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Mono.just(item), CatalogueItem.class)
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        // Weak ETag never matches, as If-Match uses strong comparison
+        this.client
+            .put()
+            .uri(replaceSKU(UPDATE))
+            .header(HttpHeaders.IF_MATCH, "W/" + updatedETag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Mono.just(item), CatalogueItem.class)
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        this.client
+            .put()
+            .uri(replaceSKU(UPDATE))
+            .header(HttpHeaders.IF_MATCH, "not-quoted")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Mono.just(item), CatalogueItem.class)
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        this.client
+            .get()
+            .uri(replaceSKU(GET_ITEM))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, updatedETag);
+
+        // Update succeeds when any ETag of the list is the current version
+        this.client
+            .put()
+            .uri(replaceSKU(UPDATE))
+            .header(HttpHeaders.IF_MATCH, eTag + ", W/\"abc\", " + updatedETag)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Mono.just(item), CatalogueItem.class)
+            .exchange()
+            .expectStatus().isOk();
+    }
+
     @Test
     @Order(50)
     public void testDeleteCatalogueItem() throws Exception {
@@ -165,6 +565,17 @@ public class CatalogueControllerTest {
             .expectStatus().isNoContent();
     }
 
+    @Test
+    @Order(51)
+    public void testDeleteCatalogueItemNotFound() {
+
+        this.client
+            .delete()
+            .uri(DELETE.replaceAll("\\{sku\\}", "INVALID"))
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
     /**
      * Test method to validate create catalogue item if Invalid Category is passed in request
      */
@@ -185,6 +596,28 @@ public class CatalogueControllerTest {
             .expectHeader().contentType(MediaType.APPLICATION_JSON);
     }
 
+    /**
+     * Test method to validate create catalogue item with a SKU which already exists
+     */
+    @Test
+    @Order(65)
+    public void testCreateCatalogueItemWithDuplicateSku() {
+
+        createCatalogueItem();
+
+        CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem();
+        item.setId(null);
+
+        this.client
+            .post()
+            .uri(CREATE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Mono.just(item), CatalogueItem.class)
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+            .expectHeader().contentType(MediaType.APPLICATION_JSON);
+    }
+
     /**
      * Test method to validate Resource not found exception
      */
@@ -209,33 +642,1294 @@ public class CatalogueControllerTest {
     @Order(80)
     public void testCatalogueItemImageUpload() throws Exception {
 
-        when(fileStorageService.storeFile(any())).thenReturn(Mono.just("FILE_NAME"));
-
         createCatalogueItem();
 
-        MultipartBodyBuilder multipartBodyBuilder = new MultipartBodyBuilder();
-        multipartBodyBuilder
-            .part("file", new ClassPathResource("application.yml"));
+        byte[] image = "PNG IMAGE CONTENT".getBytes(StandardCharsets.UTF_8);
 
-        this.client
+        CatalogueItemImage uploaded = this.client
             .post()
             .uri(replaceSKU(UPLOAD_IMAGE))
-            .body(BodyInserters.fromMultipartData(multipartBodyBuilder.build()))
+            .body(BodyInserters.fromMultipartData(imagePart(image, MediaType.IMAGE_PNG)))
             .exchange()
-            .expectStatus().isCreated();
-    }
+            .expectStatus().isCreated()
+            .expectBody(CatalogueItemImage.class)
+            .returnResult()
+            .getResponseBody();
 
-    private void createCatalogueItem() {
-        CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem();
-        item.setId(null);
+        assertThat(uploaded.getContentLength()).isEqualTo(image.length);
+        assertThat(uploaded.getChecksum()).hasSize(64);
+        assertThat(uploaded.getFileName()).isNull();
 
         this.client
-            .post()
-            .uri(CREATE)
-            .contentType(MediaType.APPLICATION_JSON)
-            .body(Mono.just(item), CatalogueItem.class)
+            .get()
+            .uri(replaceSKU(GET_IMAGE))
             .exchange()
-            .expectStatus().isCreated();
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.IMAGE_PNG)
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + uploaded.getChecksum() + "\"")
+            .expectBody(byte[].class).isEqualTo(image);
+
+        this.client
+            .get()
+            .uri(replaceSKU(GET_IMAGE))
+            .header(HttpHeaders.RANGE, "bytes=4-8")
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PARTIAL_CONTENT)
+            .expectBody(String.class).isEqualTo("IMAGE");
+
+        this.client
+            .get()
+            .uri(replaceSKU(GET_IMAGE))
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + uploaded.getChecksum() + "\"")
+            .exchange()
+            .expectStatus().isNotModified();
+    }
+
+    /**
+     * Test image upload is rejected when content type is not an image or it exceeds the maximum size, and images of
+     * items without one are not found
+     */
+    @Test
+    @Order(81)
+    public void testCatalogueItemImageUploadRejected() {
+
+        createCatalogueItem();
+
+        this.client
+            .post()
+            .uri(replaceSKU(UPLOAD_IMAGE))
+            .body(BodyInserters.fromMultipartData(
+                imagePart("TEXT".getBytes(StandardCharsets.UTF_8), MediaType.TEXT_PLAIN)))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        this.client
+            .post()
+            .uri(replaceSKU(UPLOAD_IMAGE))
+            .body(BodyInserters.fromMultipartData(imagePart(new byte[2048], MediaType.IMAGE_PNG)))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE)
+            .expectBody()
+            .jsonPath("$.errors[0].code").isEqualTo(1080);
+
+        this.client
+            .get()
+            .uri(replaceSKU(GET_IMAGE))
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    /**
+     * Test identical images are stored once, and their file is collected once no item references it
+     */
+    @Test
+    @Order(82)
+    public void testCatalogueItemImagesDeduplicated() throws Exception {
+
+        List<String> skus = Arrays.asList("IMG-SKU-1", "IMG-SKU-2");
+        byte[] image = ("DEDUPLICATED IMAGE " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+
+        List<String> checksums = new ArrayList<>();
+        for (String sku : skus) {
+            CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem(sku);
+            item.setId(null);
+            this.client
+                .post()
+                .uri(CREATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(item), CatalogueItem.class)
+                .exchange()
+                .expectStatus().isCreated();
+
+            checksums.add(this.client
+                .post()
+                .uri(UPLOAD_IMAGE.replaceAll("\\{sku\\}", sku))
+                .body(BodyInserters.fromMultipartData(imagePart(image, MediaType.IMAGE_PNG)))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(CatalogueItemImage.class)
+                .returnResult()
+                .getResponseBody()
+                .getChecksum());
+        }
+
+        String checksum = checksums.get(0);
+        assertThat(checksums).containsOnly(checksum);
+        assertThat(meterRegistry.get("catalogue.images.blobs.deduplicated").counter().count()).isEqualTo(1);
+        assertThat(imageBlobRepository.countReferences(checksum).block()).isEqualTo(2);
+
+        Path blob = Paths.get("target/uploads/blobs", checksum.substring(0, 2), checksum.substring(2, 4), checksum);
+        assertThat(blob).exists();
+
+        // Blob is retained while any item still references it
+        this.client.delete().uri(DELETE.replaceAll("\\{sku\\}", skus.get(0))).exchange().expectStatus().isNoContent();
+        assertThat(imageBlobRepository.countReferences(checksum).block()).isEqualTo(1);
+        assertThat(fileStorageService.collectGarbage(Duration.ZERO).block()).isEqualTo(0);
+        assertThat(blob).exists();
+
+        this.client.delete().uri(DELETE.replaceAll("\\{sku\\}", skus.get(1))).exchange().expectStatus().isNoContent();
+        assertThat(fileStorageService.collectGarbage(Duration.ZERO).block()).isEqualTo(1);
+        assertThat(blob).doesNotExist();
+    }
+
+    /**
+     * Test renditions are produced in the background once an image is uploaded, scaled to fit keeping aspect ratio
+     */
+    @Test
+    @Order(83)
+    public void testCatalogueItemImageRenditions() throws Exception {
+
+        createCatalogueItem();
+
+        BufferedImage source = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = source.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, 400, 200);
+        graphics.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(source, "png", png);
+
+        String checksum = this.client
+            .post()
+            .uri(replaceSKU(UPLOAD_IMAGE))
+            .body(BodyInserters.fromMultipartData(imagePart(png.toByteArray(), MediaType.IMAGE_PNG)))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(CatalogueItemImage.class)
+            .returnResult()
+            .getResponseBody()
+            .getChecksum();
+
+        Path thumbnail = Paths.get(
+            "target/uploads/blobs", checksum.substring(0, 2), checksum.substring(2, 4), checksum + "-thumbnail.png");
+        for (int attempt = 0; attempt < 50 && !Files.exists(thumbnail); attempt++) {
+            Thread.sleep(100);
+        }
+        assertThat(thumbnail).exists();
+
+        byte[] rendition = this.client
+            .get()
+            .uri(replaceSKU(GET_IMAGE_RENDITION).replaceAll("\\{rendition\\}", "thumbnail"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.IMAGE_PNG)
+            .expectHeader().cacheControl(CacheControl.maxAge(Duration.ofDays(7)).cachePublic())
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        BufferedImage thumbnailImage = ImageIO.read(new ByteArrayInputStream(rendition));
+        assertThat(thumbnailImage.getWidth()).isEqualTo(128);
+        assertThat(thumbnailImage.getHeight()).isEqualTo(64);
+
+        this.client
+            .get()
+            .uri(replaceSKU(GET_IMAGE_RENDITION).replaceAll("\\{rendition\\}", "UNKNOWN"))
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    /**
+     * Test renditions are not produced for images with more pixels than allowed
+     */
+    @Test
+    @Order(84)
+    public void testCatalogueItemImageRenditionsOfLargeImage() throws Exception {
+
+        renditionProperties.setMaxPixels(10_000);
+        createCatalogueItem();
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", png);
+
+        this.client
+            .post()
+            .uri(replaceSKU(UPLOAD_IMAGE))
+            .body(BodyInserters.fromMultipartData(imagePart(png.toByteArray(), MediaType.IMAGE_PNG)))
+            .exchange()
+            .expectStatus().isCreated();
+
+        this.client
+            .get()
+            .uri(replaceSKU(GET_IMAGE_RENDITION).replaceAll("\\{rendition\\}", "thumbnail"))
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody()
+            .jsonPath("$.errors[0].description")
+            .value(description -> assertThat((String) description).contains("400x200"));
+    }
+
+    /**
+     * Test renditions are not served once their image is no longer stored, and are deleted along with it, sweeping
+     * renditions left behind by images already deleted
+     */
+    @Test
+    @Order(85)
+    public void testCatalogueItemImageRenditionsCollected() throws Exception {
+
+        createCatalogueItem();
+
+        BufferedImage source = new BufferedImage(300, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = source.createGraphics();
+        graphics.setColor(new Color(UUID.randomUUID().hashCode()));
+        graphics.fillRect(0, 0, 300, 100);
+        graphics.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(source, "png", png);
+
+        String checksum = this.client
+            .post()
+            .uri(replaceSKU(UPLOAD_IMAGE))
+            .body(BodyInserters.fromMultipartData(imagePart(png.toByteArray(), MediaType.IMAGE_PNG)))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody(CatalogueItemImage.class)
+            .returnResult()
+            .getResponseBody()
+            .getChecksum();
+
+        Path directory = Paths.get("target/uploads/blobs", checksum.substring(0, 2), checksum.substring(2, 4));
+        Path blob = directory.resolve(checksum);
+        Path thumbnail = directory.resolve(checksum + "-thumbnail.png");
+        for (int attempt = 0; attempt < 50 && !Files.exists(thumbnail); attempt++) {
+            Thread.sleep(100);
+        }
+        assertThat(thumbnail).exists();
+
+        // Rendition of an image whose blob was deleted while a rendition was being written
+        Path orphaned = directory.resolve(checksum.substring(0, 4) + "0".repeat(60) + "-thumbnail.png");
+        Files.copy(thumbnail, orphaned);
+
+        Files.delete(blob);
+        this.client
+            .get()
+            .uri(replaceSKU(GET_IMAGE_RENDITION).replaceAll("\\{rendition\\}", "thumbnail"))
+            .exchange()
+            .expectStatus().isNotFound();
+
+        this.client.delete().uri(replaceSKU(DELETE)).exchange().expectStatus().isNoContent();
+        assertThat(fileStorageService.collectGarbage(Duration.ZERO).block()).isEqualTo(1);
+        assertThat(thumbnail).doesNotExist();
+        assertThat(orphaned).doesNotExist();
+    }
+
+    /**
+     * Test bulk create with a JSON array, where invalid items are reported without failing the rest of the chunk
+     */
+    @Test
+    @Order(90)
+    public void testBulkCreateCatalogueItems() {
+
+        CatalogueItem invalidItem = CatalogueItemGenerator.generateCatalogueItem("BULK-SKU-3");
+        invalidItem.setCategory("INVALID");
+
+        this.client
+            .post()
+            .uri(BULK_CREATE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .bodyValue(Arrays.asList(
+                CatalogueItemGenerator.generateCatalogueItem("BULK-SKU-1"),
+                CatalogueItemGenerator.generateCatalogueItem("BULK-SKU-2"),
+                invalidItem))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(3)
+            .jsonPath("$[0].sku").isEqualTo("BULK-SKU-1")
+            .jsonPath("$[0].status").isEqualTo("CREATED")
+            .jsonPath("$[0].id").isNotEmpty()
+            .jsonPath("$[1].status").isEqualTo("CREATED")
+            .jsonPath("$[2].status").isEqualTo("INVALID")
+            .jsonPath("$[2].message").isEqualTo("Invalid category provided");
+    }
+
+    /**
+     * Test bulk create with NDJSON stream followed by bulk update and bulk delete of the created items
+     */
+    @Test
+    @Order(91)
+    public void testBulkUpdateAndDeleteCatalogueItems() {
+
+        this.client
+            .post()
+            .uri(BULK_CREATE)
+            .contentType(CatalogueMediaTypes.APPLICATION_NDJSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .bodyValue(
+                toJson(CatalogueItemGenerator.generateCatalogueItem("BULK-SKU-4")) + "\n" +
+                toJson(CatalogueItemGenerator.generateCatalogueItem("BULK-SKU-5")) + "\n")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(2)
+            .jsonPath("$[0].status").isEqualTo("CREATED")
+            .jsonPath("$[1].status").isEqualTo("CREATED");
+
+        this.client
+            .put()
+            .uri(BULK_UPDATE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .bodyValue(Arrays.asList(
+                CatalogueItemGenerator.generateCatalogueItem("BULK-SKU-4"),
+                CatalogueItemGenerator.generateCatalogueItem("BULK-SKU-UNKNOWN")))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].status").isEqualTo("UPDATED")
+            .jsonPath("$[1].status").isEqualTo("NOT_FOUND");
+
+        this.client
+            .method(HttpMethod.DELETE)
+            .uri(BULK_DELETE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .bodyValue(Arrays.asList(new SkuReference("BULK-SKU-4"), new SkuReference("BULK-SKU-5")))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].status").isEqualTo("DELETED")
+            .jsonPath("$[1].status").isEqualTo("DELETED");
+
+        this.client
+            .get()
+            .uri(GET_ITEM.replaceAll("\\{sku\\}", "BULK-SKU-4"))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    /**
+     * Test NDJSON import where malformed, invalid and duplicate lines are rejected without stopping the import
+     */
+    @Test
+    @Order(92)
+    public void testImportCatalogueItems() {
+
+        CatalogueItem invalidItem = CatalogueItemGenerator.generateCatalogueItem("IMPORT-SKU-3");
+        invalidItem.setCategory("INVALID");
+
+        this.client
+            .post()
+            .uri(IMPORT)
+            .contentType(CatalogueMediaTypes.APPLICATION_NDJSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .bodyValue(
+                toJson(CatalogueItemGenerator.generateCatalogueItem("IMPORT-SKU-1")) + "\n" +
+                toJson(CatalogueItemGenerator.generateCatalogueItem("IMPORT-SKU-2")) + "\n" +
+                "\n" +
+                "{ not json\n" +
+                toJson(invalidItem) + "\n" +
+                "null\n" +
+                "\"" + String.join("", Collections.nCopies(300 * 1024, "x")) + "\"\n" +
+                toJson(CatalogueItemGenerator.generateCatalogueItem("IMPORT-SKU-4")) + "\n" +
+                toJson(CatalogueItemGenerator.generateCatalogueItem("IMPORT-SKU-1")))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.received").isEqualTo(8)
+            .jsonPath("$.created").isEqualTo(3)
+            .jsonPath("$.rejected").isEqualTo(5)
+            .jsonPath("$.errors[?(@.line == 4)]").exists()
+            .jsonPath("$.errors[?(@.line == 5)].sku").isEqualTo("IMPORT-SKU-3")
+            .jsonPath("$.errors[?(@.line == 6)]").exists()
+            .jsonPath("$.errors[?(@.line == 7)]").exists()
+            .jsonPath("$.errors[?(@.line == 9)].sku").isEqualTo("IMPORT-SKU-1");
+
+        this.client
+            .get()
+            .uri(GET_ITEM.replaceAll("\\{sku\\}", "IMPORT-SKU-2"))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    /**
+     * Test repeated lookups by SKU are served from cache and the cached item is invalidated once deleted
+     */
+    @Test
+    @Order(93)
+    public void testGetCatalogueItemFromCache() {
+
+        createCatalogueItem();
+
+        for (int i = 0; i < 2; i++) {
+            this.client
+                .get()
+                .uri(replaceSKU(GET_ITEM))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk();
+        }
+
+        assertThat(
+            meterRegistry
+                .get("cache.gets")
+                .tags("cache", CatalogueItemCache.CACHE_NAME, "result", "hit")
+                .functionCounter()
+                .count())
+            .isGreaterThanOrEqualTo(1);
+
+        this.client
+            .method(HttpMethod.DELETE)
+            .uri(BULK_DELETE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(Arrays.asList(new SkuReference(catalogueItem.getSku())))
+            .exchange()
+            .expectStatus().isOk();
+
+        this.client
+            .get()
+            .uri(replaceSKU(GET_ITEM))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    /**
+     * Test connection pool occupancy and acquire latency metrics are published
+     */
+    @Test
+    @Order(94)
+    public void testConnectionPoolMetrics() {
+
+        this.client
+            .get()
+            .uri(GET_ITEMS_PAGE)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk();
+
+        assertThat(meterRegistry.get("r2dbc.pool.acquire").tags("outcome", "success").timer().count())
+            .isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("r2dbc.pool.max.allocated").gauge().value()).isEqualTo(20);
+        assertThat(meterRegistry.get("r2dbc.pool.pending").gauge().value()).isEqualTo(0);
+    }
+
+    /**
+     * Test inventory is adjusted in the database and rejected when it would go below zero or overflow, for single and
+     * batched adjustments
+     */
+    @Test
+    @Order(95)
+    public void testAdjustInventory() {
+
+        this.client
+            .post()
+            .uri(BULK_CREATE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(Arrays.asList(
+                CatalogueItemGenerator.generateCatalogueItem("INV-SKU-1"),
+                CatalogueItemGenerator.generateCatalogueItem("INV-SKU-2")))
+            .exchange()
+            .expectStatus().isOk();
+
+        this.client
+            .patch()
+            .uri(ADJUST_INVENTORY.replaceAll("\\{sku\\}", "INV-SKU-1"))
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new InventoryAdjustment(null, -4))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.sku").isEqualTo("INV-SKU-1")
+            .jsonPath("$.inventory").isEqualTo(6);
+
+        this.client
+            .patch()
+            .uri(ADJUST_INVENTORY.replaceAll("\\{sku\\}", "INV-SKU-1"))
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new InventoryAdjustment(null, -7))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+        this.client
+            .patch()
+            .uri(ADJUST_INVENTORY.replaceAll("\\{sku\\}", "INVALID"))
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new InventoryAdjustment(null, 1))
+            .exchange()
+            .expectStatus().isNotFound();
+
+        this.client
+            .patch()
+            .uri(BULK_ADJUST_INVENTORY)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .bodyValue(Arrays.asList(
+                new InventoryAdjustment("INV-SKU-1", -6),
+                new InventoryAdjustment("INV-SKU-2", 5),
+                new InventoryAdjustment("INV-SKU-2", -20),
+                new InventoryAdjustment("INV-SKU-UNKNOWN", 1),
+                new InventoryAdjustment(null, 1)))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(5)
+            .jsonPath("$[0].status").isEqualTo("ADJUSTED")
+            .jsonPath("$[0].inventory").isEqualTo(0)
+            .jsonPath("$[1].status").isEqualTo("ADJUSTED")
+            .jsonPath("$[1].inventory").isEqualTo(15)
+            .jsonPath("$[2].status").isEqualTo("INSUFFICIENT_INVENTORY")
+            .jsonPath("$[3].status").isEqualTo("NOT_FOUND")
+            .jsonPath("$[4].status").isEqualTo("INVALID");
+
+        // Inventory above the largest INTEGER is rejected rather than overflowing
+        this.client
+            .patch()
+            .uri(ADJUST_INVENTORY.replaceAll("\\{sku\\}", "INV-SKU-2"))
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new InventoryAdjustment(null, Integer.MAX_VALUE))
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        this.client
+            .patch()
+            .uri(BULK_ADJUST_INVENTORY)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .bodyValue(Arrays.asList(
+                new InventoryAdjustment("INV-SKU-2", Integer.MAX_VALUE),
+                new InventoryAdjustment("INV-SKU-1", Integer.MIN_VALUE)))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].status").isEqualTo("INVALID")
+            .jsonPath("$[0].inventory").isEqualTo(15)
+            .jsonPath("$[1].status").isEqualTo("INSUFFICIENT_INVENTORY");
+
+        this.client
+            .get()
+            .uri(GET_ITEM.replaceAll("\\{sku\\}", "INV-SKU-2"))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.inventory").isEqualTo(15);
+    }
+
+    /**
+     * Test subscribers which do not request events are handled as per their overflow strategy without affecting the
+     * publisher
+     */
+    @Test
+    @Order(96)
+    public void testEventBusOverflowStrategies() {
+
+        List<CatalogueItemEvent> events = IntStream
+            .rangeClosed(1, 260)
+            .mapToObj(i -> new CatalogueItemEvent(
+                CatalogueItemEvent.CATALOGUEITEM_UPDATED, CatalogueItemGenerator.generateCatalogueItem("EVT-SKU-" + i)))
+            .collect(Collectors.toList());
+
+        // Buffer holds the latest 256 events
+        StepVerifier
+            .create(eventPublisher.subscribe("test-drop-oldest", SubscriberOverflowStrategy.DROP_OLDEST), 0)
+            .then(() -> events.forEach(eventPublisher::onApplicationEvent))
+            .then(() -> assertThat(meterRegistry.get("catalogue.events.subscriber.dropped")
+                .tags("kind", "test", "strategy", "DROP_OLDEST").counter().count())
+                .isEqualTo(4))
+            .then(() -> assertThat(meterRegistry.get("catalogue.events.subscriber.lag")
+                .tags("kind", "test", "strategy", "DROP_OLDEST").gauge().value())
+                .isEqualTo(256))
+            .thenRequest(1)
+            .expectNext(events.get(4))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        // Only latest event is kept for each SKU
+        StepVerifier
+            .create(eventPublisher.subscribe("test-conflate", SubscriberOverflowStrategy.CONFLATE_BY_SKU), 0)
+            .then(() -> Arrays.asList(events.get(0), events.get(1), events.get(0)).forEach(eventPublisher::onApplicationEvent))
+            .thenRequest(10)
+            .expectNext(events.get(1), events.get(0))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        StepVerifier
+            .create(eventPublisher.subscribe("test-disconnect", SubscriberOverflowStrategy.DISCONNECT), 0)
+            .then(() -> events.forEach(eventPublisher::onApplicationEvent))
+            .expectError(IllegalStateException.class)
+            .verify(Duration.ofSeconds(5));
+
+        // Metrics are kept per kind of subscriber rather than per connection, and lag drops once subscribers are gone
+        assertThat(meterRegistry.find("catalogue.events.subscriber.lag").tagKeys("subscriber").meters()).isEmpty();
+        assertThat(meterRegistry.find("catalogue.events.subscriber.dropped").tagKeys("subscriber").meters()).isEmpty();
+        assertThat(meterRegistry.get("catalogue.events.subscriber.lag")
+            .tags("kind", "test", "strategy", "DROP_OLDEST").gauge().value())
+            .isEqualTo(0);
+    }
+
+    /**
+     * Test SSE event stream only receives events matching the filters in query parameters
+     */
+    @Test
+    @Order(97)
+    public void testGetCatalogueItemEventsWithFilters() {
+
+        CatalogueItem matching = CatalogueItemGenerator.generateCatalogueItem("SSE-SKU-1");
+        matching.setCategory("Music");
+        CatalogueItem otherCategory = CatalogueItemGenerator.generateCatalogueItem("SSE-SKU-2");
+        CatalogueItem otherSku = CatalogueItemGenerator.generateCatalogueItem("OTHER-SKU-3");
+        otherSku.setCategory("Music");
+
+        // Publish events once the stream is subscribed
+        Flux.interval(Duration.ofMillis(50))
+            .filter(i -> meterRegistry.get("catalogue.events.subscribers").gauge().value() > 0)
+            .next()
+            .subscribe(i -> Arrays.asList(otherCategory, otherSku, matching).forEach(item ->
+                eventPublisher.onApplicationEvent(new CatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_UPDATED, item))));
+
+        FluxExchangeResult<String> result = this.client
+            .get()
+            .uri(uriBuilder -> uriBuilder
+                .path(GET_ITEMS_SSE_EVENTS)
+                .queryParam("category", "music")
+                .queryParam("skuPrefix", "SSE-")
+                .queryParam("eventType", "UPDATED")
+                .build())
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class);
+
+        StepVerifier
+            .create(result.getResponseBody())
+            .assertNext(data -> assertThat(data).contains("SSE-SKU-1").doesNotContain("SSE-SKU-2"))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Test SSE event stream resumes after Last-Event-ID from retained events, and asks for resync when it cannot
+     */
+    @Test
+    @Order(98)
+    public void testGetCatalogueItemEventsResumedFromLastEventId() {
+
+        List<CatalogueItemEvent> events = IntStream
+            .rangeClosed(1, 3)
+            .mapToObj(i -> new CatalogueItemEvent(
+                CatalogueItemEvent.CATALOGUEITEM_UPDATED, CatalogueItemGenerator.generateCatalogueItem("SSE-SKU-" + i)))
+            .collect(Collectors.toList());
+        events.forEach(eventPublisher::onApplicationEvent);
+
+        FluxExchangeResult<ServerSentEvent<String>> resumed = this.client
+            .get()
+            .uri(GET_ITEMS_SSE_EVENTS)
+            .header("Last-Event-ID", String.valueOf(events.get(0).getSequence()))
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {});
+
+        StepVerifier
+            .create(resumed.getResponseBody())
+            .assertNext(event -> {
+                assertThat(event.id()).isEqualTo(String.valueOf(events.get(1).getSequence()));
+                assertThat(event.event()).isEqualTo(CatalogueItemEvent.CATALOGUEITEM_UPDATED);
+                assertThat(event.data()).contains("SSE-SKU-2");
+            })
+            .assertNext(event -> assertThat(event.id()).isEqualTo(String.valueOf(events.get(2).getSequence())))
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        // Last-Event-ID from before a restart cannot be resumed
+        FluxExchangeResult<ServerSentEvent<String>> resync = this.client
+            .get()
+            .uri(GET_ITEMS_SSE_EVENTS)
+            .header("Last-Event-ID", String.valueOf(events.get(2).getSequence() + 100))
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {});
+
+        StepVerifier
+            .create(resync.getResponseBody())
+            .assertNext(event -> {
+                assertThat(event.event()).isEqualTo(CatalogueItemEvent.CATALOGUEITEM_RESYNC);
+                assertThat(event.id()).isEqualTo(String.valueOf(events.get(2).getSequence()));
+            })
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Test SSE event stream with conflation sends the latest change of each SKU in a single batch
+     */
+    @Test
+    @Order(99)
+    public void testGetCatalogueItemEventsConflated() {
+
+        CatalogueItem created = CatalogueItemGenerator.generateCatalogueItem("CONFLATE-SKU-1");
+        created.setId(7L);
+        CatalogueItem updated = CatalogueItemGenerator.generateCatalogueItem("CONFLATE-SKU-1");
+        updated.setName("Updated Item Name");
+        updated.setCategory("Music");
+        CatalogueItem inventoryChanged = new CatalogueItem();
+        inventoryChanged.setSku("CONFLATE-SKU-1");
+        inventoryChanged.setInventory(3);
+        CatalogueItem deleted = new CatalogueItem();
+        deleted.setSku("CONFLATE-SKU-2");
+
+        List<CatalogueItemEvent> events = Arrays.asList(
+            new CatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_CREATED, created),
+            new CatalogueItemEvent(
+                CatalogueItemEvent.CATALOGUEITEM_UPDATED, CatalogueItemGenerator.generateCatalogueItem("CONFLATE-SKU-2")),
+            new CatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_UPDATED, updated),
+            new CatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_INVENTORY_CHANGED, inventoryChanged),
+            new CatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_DELETED, deleted));
+
+        Flux.interval(Duration.ofMillis(50))
+            .filter(i -> meterRegistry.get("catalogue.events.subscribers").gauge().value() > 0)
+            .next()
+            .subscribe(i -> events.forEach(eventPublisher::onApplicationEvent));
+
+        FluxExchangeResult<ServerSentEvent<String>> result = this.client
+            .get()
+            .uri(uriBuilder -> uriBuilder.path(GET_ITEMS_SSE_EVENTS).queryParam("conflate", "true").build())
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(new ParameterizedTypeReference<ServerSentEvent<String>>() {});
+
+        StepVerifier
+            .create(result.getResponseBody())
+            .assertNext(event -> {
+                assertThat(event.event()).isEqualTo(CatalogueItemEventBatch.CATALOGUEITEM_BATCH);
+                assertThat(event.id()).isEqualTo(String.valueOf(events.get(4).getSequence()));
+
+                JsonNode batch = readJson(event.data());
+                assertThat(batch.size()).isEqualTo(2);
+                assertThat(batch.at("/CREATED/0/sku").asText()).isEqualTo("CONFLATE-SKU-1");
+                assertThat(batch.at("/CREATED/0/name").asText()).isEqualTo("Updated Item Name");
+                assertThat(batch.at("/CREATED/0/id").asLong()).isEqualTo(7);
+                assertThat(batch.at("/CREATED/0/category").asText()).isEqualTo("Books");
+                assertThat(batch.at("/CREATED/0/inventory").asInt()).isEqualTo(3);
+                assertThat(batch.at("/DELETED/0/sku").asText()).isEqualTo("CONFLATE-SKU-2");
+            })
+            .thenCancel()
+            .verify(Duration.ofSeconds(5));
+
+        assertThat(meterRegistry.get("catalogue.events.conflated").counter().count()).isEqualTo(3);
+    }
+
+    /**
+     * Test events are written to the outbox with the change and published with their outbox id as sequence, updates
+     * publish the row as written, and failed changes write no event
+     */
+    @Test
+    @Order(100)
+    public void testCatalogueItemEventsRelayedFromOutbox() {
+
+        CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem("OUTBOX-SKU-1");
+        item.setId(null);
+        List<Long> sequences = new ArrayList<>();
+
+        StepVerifier
+            .create(eventPublisher.subscribe("outbox-test").take(4).doOnNext(e -> sequences.add(e.getSequence())))
+            .then(() -> {
+                this.client
+                    .post()
+                    .uri(CREATE)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Mono.just(item), CatalogueItem.class)
+                    .exchange()
+                    .expectStatus().isCreated();
+
+                CatalogueItem update = CatalogueItemGenerator.generateCatalogueItem("OUTBOX-SKU-1");
+                update.setName("Updated Name");
+                update.setCategory("books");
+                this.client
+                    .put()
+                    .uri(UPDATE.replaceAll("\\{sku\\}", "OUTBOX-SKU-1"))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(update)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"");
+
+                update.setName("Bulk Updated Name");
+                this.client
+                    .put()
+                    .uri(BULK_UPDATE)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Arrays.asList(update))
+                    .exchange()
+                    .expectStatus().isOk();
+
+                this.client
+                    .patch()
+                    .uri(ADJUST_INVENTORY.replaceAll("\\{sku\\}", "OUTBOX-SKU-1"))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new InventoryAdjustment(null, -1000))
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+
+                this.client
+                    .delete()
+                    .uri(DELETE.replaceAll("\\{sku\\}", "OUTBOX-SKU-1"))
+                    .exchange()
+                    .expectStatus().isNoContent();
+            })
+            .assertNext(event -> {
+                assertThat(event.getEventType()).isEqualTo(CatalogueItemEvent.CATALOGUEITEM_CREATED);
+                assertThat(event.getCatalogueItems().get(0).getSku()).isEqualTo("OUTBOX-SKU-1");
+                assertThat(event.getCatalogueItems().get(0).getName()).isEqualTo(item.getName());
+            })
+            .assertNext(event -> {
+                assertThat(event.getEventType()).isEqualTo(CatalogueItemEvent.CATALOGUEITEM_UPDATED);
+                CatalogueItem updated = event.getCatalogueItems().get(0);
+                assertThat(updated.getName()).isEqualTo("Updated Name");
+                assertThat(updated.getId()).isNotNull();
+                assertThat(updated.getCreatedOn()).isNotNull();
+                assertThat(updated.getCategory()).isEqualTo("Books");
+                assertThat(updated.getVersion()).isEqualTo(1);
+            })
+            .assertNext(event -> {
+                assertThat(event.getEventType()).isEqualTo(CatalogueItemEvent.CATALOGUEITEM_UPDATED);
+                assertThat(event.getCatalogueItems().get(0).getName()).isEqualTo("Bulk Updated Name");
+                assertThat(event.getCatalogueItems().get(0).getVersion()).isEqualTo(2);
+            })
+            .assertNext(event -> assertThat(event.getEventType()).isEqualTo(CatalogueItemEvent.CATALOGUEITEM_DELETED))
+            .verifyComplete();
+
+        List<CatalogueItemEventRecord> records = eventRepository.findAfter(0, 10).collectList().block();
+        assertThat(records)
+            .extracting(CatalogueItemEventRecord::getEventType)
+            .containsExactly(
+                CatalogueItemEvent.CATALOGUEITEM_CREATED,
+                CatalogueItemEvent.CATALOGUEITEM_UPDATED,
+                CatalogueItemEvent.CATALOGUEITEM_UPDATED,
+                CatalogueItemEvent.CATALOGUEITEM_DELETED);
+        assertThat(records).extracting(CatalogueItemEventRecord::getId).containsExactlyElementsOf(sequences);
+        assertThat(records.get(0).getPayload()).contains("OUTBOX-SKU-1");
+    }
+
+    /**
+     * Test latency of controller, service and repository operations and of queries is published tagged by outcome, and
+     * streams are left out
+     */
+    @Test
+    @Order(101)
+    public void testOperationAndQueryMetrics() {
+
+        createCatalogueItem();
+
+        this.client
+            .get()
+            .uri(GET_ITEM.replaceAll("\\{sku\\}", "INVALID"))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus().isNotFound();
+
+        this.client
+            .get()
+            .uri(GET_ITEMS_STREAM)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(CatalogueItem.class)
+            .getResponseBody()
+            .blockLast();
+
+        assertThat(meterRegistry
+                .get("catalogue.operations")
+                .tags("layer", "controller", "operation", "CatalogueController.addCatalogueItem", "outcome", "success")
+                .timer()
+                .count())
+            .isEqualTo(1);
+        assertThat(meterRegistry
+                .get("catalogue.operations")
+                .tags(
+                    "layer", "service",
+                    "operation", "CatalogueCrudService.getCatalogueItem",
+                    "outcome", "error",
+                    "exception", "ResourceNotFoundException")
+                .timer()
+                .count())
+            .isEqualTo(1);
+        assertThat(meterRegistry
+                .get("catalogue.operations")
+                .tags("layer", "repository", "operation", "CatalogueRepository.findBySku", "outcome", "success")
+                .timer()
+                .count())
+            .isGreaterThanOrEqualTo(1);
+
+        // Streams are held open while the client is connected, so they are not timed
+        assertThat(meterRegistry
+                .find("catalogue.operations")
+                .tags("operation", "CatalogueController.getCatalogueItemsStream")
+                .timer())
+            .isNull();
+        assertThat(meterRegistry
+                .find("catalogue.operations")
+                .tags("operation", "CatalogueBatchRepository.streamAll")
+                .timer())
+            .isNull();
+
+        assertThat(meterRegistry.get("r2dbc.query").tags("type", "INSERT", "outcome", "success").timer().count())
+            .isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("r2dbc.query").tags("type", "SELECT", "outcome", "success").timer().count())
+            .isGreaterThanOrEqualTo(1);
+    }
+
+    /**
+     * Test domain metrics are published through the prometheus endpoint
+     */
+    @Test
+    @Order(102)
+    public void testPrometheusDomainMetrics() {
+
+        catalogueSizeMetrics.refresh().block();
+        double books = meterRegistry.get("catalogue.items").tags("category", "Books").gauge().value();
+
+        createCatalogueItem();
+        catalogueSizeMetrics.refresh().block();
+
+        assertThat(meterRegistry.get("catalogue.items").tags("category", "Books").gauge().value()).isEqualTo(books + 1);
+
+        String scrape = this.client
+            .get()
+            .uri("http://localhost:" + port + "/actuator/prometheus")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(scrape)
+            .contains("catalogue_items{category=\"Music\",} 0.0")
+            .contains("catalogue_events_queue_depth 0.0")
+            .contains("catalogue_ws_sessions 0.0")
+            .contains("catalogue_images_uploads_bytes_total 0.0")
+            .contains("catalogue_operations_seconds_bucket{");
+    }
+
+    /**
+     * Test search matches partially typed words of name and description, ranks name matches first and follows changes
+     * relayed from the outbox
+     */
+    @Test
+    @Order(103)
+    public void testSearchCatalogueItems() throws Exception {
+
+        CatalogueItem handbook = CatalogueItemGenerator.generateCatalogueItem("SEARCH-SKU-1");
+        handbook.setName("Reactive Streams Handbook");
+        handbook.setDescription("Backpressure explained");
+        CatalogueItem album = CatalogueItemGenerator.generateCatalogueItem("SEARCH-SKU-2");
+        album.setName("Backpressure Blues");
+        album.setDescription("Café recordings of a reactive band");
+        album.setCategory("Music");
+
+        for (CatalogueItem item : Arrays.asList(handbook, album)) {
+            this.client
+                .post()
+                .uri(CREATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(item)
+                .exchange()
+                .expectStatus().isCreated();
+        }
+
+        CatalogueSearchResult result = awaitSearch(SEARCH + "?q=Backpressure REAC", 2);
+        assertThat(result.getItems())
+            .extracting(CatalogueItem::getSku)
+            .containsExactly("SEARCH-SKU-2", "SEARCH-SKU-1");
+        assertThat(result.getCategories()).containsEntry("Books", 1L).containsEntry("Music", 1L);
+
+        result = awaitSearch(SEARCH + "?q=cafe&category=music", 1);
+        assertThat(result.getItems()).extracting(CatalogueItem::getName).containsExactly("Backpressure Blues");
+
+        // Update without the persisted version keeps the indexed version and time of update
+        CatalogueItem indexed = awaitSearch(SEARCH + "?q=handbook", 1).getItems().get(0);
+        assertThat(indexed.getVersion()).isNotNull();
+        CatalogueItem partial = CatalogueItemGenerator.generateCatalogueItem("SEARCH-SKU-1");
+        partial.setName("Reactive Streams Field Guide");
+        partial.setDescription(handbook.getDescription());
+        catalogueSearchIndex.onApplicationEvent(
+            new CatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_UPDATED, Collections.singletonList(partial)));
+        result = awaitSearch(SEARCH + "?q=field guide", 1);
+        assertThat(result.getItems().get(0).getVersion()).isEqualTo(indexed.getVersion());
+        assertThat(result.getItems().get(0).getUpdatedOn()).isEqualTo(indexed.getUpdatedOn());
+
+        this.client
+            .delete()
+            .uri(DELETE.replaceAll("\\{sku\\}", "SEARCH-SKU-2"))
+            .exchange()
+            .expectStatus().isNoContent();
+        awaitSearch(SEARCH + "?q=backpressure", 1);
+
+        // Index is loaded afresh from the database once started again, dropping the change only made to the index
+        catalogueSearchIndex.stop();
+        assertThat(catalogueSearchIndex.isRunning()).isFalse();
+        catalogueSearchIndex.start();
+        assertThat(catalogueSearchIndex.isRunning()).isTrue();
+        assertThat(awaitSearch(SEARCH + "?q=backpressure", 1).getItems())
+            .extracting(CatalogueItem::getName)
+            .containsExactly("Reactive Streams Handbook");
+
+        this.client
+            .get()
+            .uri(SEARCH + "?q=...")
+            .exchange()
+            .expectStatus().isBadRequest();
+        this.client
+            .get()
+            .uri(SEARCH + "?q=reactive&limit=0")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    /**
+     * Test a load completing on the calling thread along with an invalidation of the same SKU, as when a transaction
+     * commits, neither fails the lookup nor leaves the SKU cached, and concurrent lookups share the load
+     */
+    @Test
+    @Order(104)
+    public void testGetCatalogueItemFromCacheWhileInvalidated() {
+
+        AtomicInteger loads = new AtomicInteger();
+        Mono<CatalogueItem> lookup = catalogueItemCache.get("CACHE-SKU-1", sku -> Mono.fromCallable(() -> {
+            loads.incrementAndGet();
+            catalogueItemCache.invalidate(sku);
+            return CatalogueItemGenerator.generateCatalogueItem(sku);
+        }));
+
+        StepVerifier
+            .create(lookup)
+            .assertNext(item -> assertThat(item.getSku()).isEqualTo("CACHE-SKU-1"))
+            .verifyComplete();
+        StepVerifier
+            .create(lookup)
+            .expectNextCount(1)
+            .verifyComplete();
+        assertThat(loads).hasValue(2);
+
+        CompletableFuture<CatalogueItem> pending = new CompletableFuture<>();
+        List<CatalogueItem> items = Flux
+            .range(0, 16)
+            .flatMap(i -> catalogueItemCache
+                .get("CACHE-SKU-2", sku -> {
+                    loads.incrementAndGet();
+                    return Mono.fromFuture(pending);
+                })
+                .subscribeOn(Schedulers.parallel()))
+            .doOnSubscribe(s -> Schedulers.single().schedule(
+                () -> pending.complete(CatalogueItemGenerator.generateCatalogueItem("CACHE-SKU-2")),
+                100, TimeUnit.MILLISECONDS))
+            .collectList()
+            .block(Duration.ofSeconds(5));
+        assertThat(items).hasSize(16);
+        assertThat(loads).hasValue(3);
+    }
+
+    /**
+     * Test conflated events keep being merged while the subscriber does not request batches, and RESYNC is sent even
+     * when no item changed
+     */
+    @Test
+    @Order(105)
+    public void testConflateEventsForSlowSubscriber() {
+
+        CatalogueItemEvent resync
+            = new CatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_RESYNC, Collections.emptyList());
+
+        StepVerifier
+            .create(eventConflator.conflate(Flux.just(resync)))
+            .assertNext(batch -> assertThat(batch.getCatalogueItems())
+                .containsOnlyKeys(CatalogueItemEvent.CATALOGUEITEM_RESYNC))
+            .verifyComplete();
+
+        // Events for two SKUs over two windows, while the subscriber requests nothing
+        Flux<CatalogueItemEvent> events = Flux
+            .interval(Duration.ofMillis(10))
+            .take(200)
+            .map(i -> new CatalogueItemEvent(
+                CatalogueItemEvent.CATALOGUEITEM_UPDATED,
+                CatalogueItemGenerator.generateCatalogueItem("SLOW-SKU-" + (i % 2)),
+                i + 1))
+            .concatWith(Flux.never());
+
+        StepVerifier
+            .create(eventConflator.conflate(events), 0)
+            .expectSubscription()
+            .expectNoEvent(Duration.ofMillis(2500))
+            .thenRequest(1)
+            .assertNext(batch ->
+                assertThat(batch.getCatalogueItems().get(CatalogueItemEvent.CATALOGUEITEM_UPDATED)).hasSize(2))
+            .thenRequest(1)
+            .assertNext(batch -> {
+                assertThat(batch.getSequence()).isEqualTo(200);
+                assertThat(batch.getCatalogueItems().get(CatalogueItemEvent.CATALOGUEITEM_UPDATED)).hasSize(2);
+            })
+            .thenCancel()
+            .verify(Duration.ofSeconds(10));
+
+        // Every change but the latest of each SKU in each of the two batches is conflated
+        assertThat(meterRegistry.get("catalogue.events.conflated").counter().count()).isEqualTo(196);
+    }
+
+    private void createCatalogueItem() {
+        CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem();
+        item.setId(null);
+
+        this.client
+            .post()
+            .uri(CREATE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Mono.just(item), CatalogueItem.class)
+            .exchange()
+            .expectStatus().isCreated();
+    }
+
+    /**
+     * Test subscribers resuming from an event no longer held by the event bus are replayed every event from the outbox,
+     * read a batch at a time
+     */
+    @Test
+    @Order(106)
+    public void testGetCatalogueItemEventsReplayedFromOutbox() {
+
+        // More events than the event bus retains
+        List<CatalogueItemEventRecord> records = eventRepository
+            .saveAll(IntStream
+                .rangeClosed(1, 1100)
+                .mapToObj(i -> new CatalogueItemEventRecord(
+                    null,
+                    CatalogueItemEvent.CATALOGUEITEM_UPDATED,
+                    "{\"sku\":\"REPLAY-SKU-" + i + "\"}",
+                    Instant.now()))
+                .collect(Collectors.toList()))
+            .collectList()
+            .block();
+        long firstId = records.get(0).getId();
+        long lastId = records.get(records.size() - 1).getId();
+
+        Flux.interval(Duration.ofMillis(50))
+            .filter(i -> eventPublisher.canResumeAfter(lastId))
+            .blockFirst(Duration.ofSeconds(10));
+        assertThat(eventPublisher.canResumeAfter(firstId)).isFalse();
+
+        outboxProperties.setBatchSize(100);
+
+        StepVerifier
+            .create(eventOutbox
+                .subscribe("test-replay", CatalogueItemEventFilter::new, firstId)
+                .take(1099)
+                .map(CatalogueItemEvent::getSequence)
+                .collectList())
+            .assertNext(sequences -> assertThat(sequences).isEqualTo(LongStream
+                .rangeClosed(firstId + 1, lastId)
+                .boxed()
+                .collect(Collectors.toList())))
+            .verifyComplete();
+    }
+
+    /**
+     * Test a rolled back event only holds back later events for the gap timeout, and an event committed after the
+     * gap timeout is still relayed once committed
+     */
+    @Test
+    @Order(107)
+    public void testOutboxRelaysEventsAfterGaps() throws Exception {
+
+        outboxProperties.setGapTimeout(Duration.ofMillis(500));
+        CompletableFuture<Void> lateWritten = new CompletableFuture<>();
+        List<String> skus = new ArrayList<>();
+
+        StepVerifier
+            .create(eventPublisher.subscribe("outbox-gaps").take(2).doOnNext(e -> skus.add(
+                e.getCatalogueItems().get(0).getSku())))
+            .then(() -> {
+                eventOutbox
+                    .append(
+                        CatalogueItemEvent.CATALOGUEITEM_CREATED, CatalogueItemGenerator.generateCatalogueItem("GAP-ROLLED-BACK"))
+                    .then(Mono.<Void>error(new IllegalStateException("Rolled back")))
+                    .as(transactionalOperator::transactional)
+                    .onErrorResume(e -> Mono.empty())
+                    .block();
+
+                // Committed once the following event was relayed and its id skipped
+                eventOutbox
+                    .append(
+                        CatalogueItemEvent.CATALOGUEITEM_CREATED, CatalogueItemGenerator.generateCatalogueItem("GAP-LATE"))
+                    .doOnSuccess(v -> lateWritten.complete(null))
+                    .then(Mono.delay(Duration.ofSeconds(2)))
+                    .then()
+                    .as(transactionalOperator::transactional)
+                    .subscribe();
+                lateWritten.join();
+
+                eventOutbox
+                    .append(
+                        CatalogueItemEvent.CATALOGUEITEM_CREATED, CatalogueItemGenerator.generateCatalogueItem("GAP-COMMITTED"))
+                    .as(transactionalOperator::transactional)
+                    .block();
+            })
+            .expectNextCount(1)
+            .expectNoEvent(Duration.ofMillis(500))
+            .expectNextCount(1)
+            .expectComplete()
+            .verify(Duration.ofSeconds(10));
+
+        // Event committed late is relayed behind the one committed after it
+        assertThat(skus).containsExactly("GAP-COMMITTED", "GAP-LATE");
+        assertThat(meterRegistry.get("catalogue.outbox.skipped").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("catalogue.outbox.late").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Search until the expected number of items match, as changes reach the search index once relayed from the outbox
+     */
+    private CatalogueSearchResult awaitSearch(String uri, long expected) throws InterruptedException {
+        CatalogueSearchResult result = null;
+        for (int attempt = 0; attempt < 50; attempt++) {
+            result = this.client
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CatalogueSearchResult.class)
+                .returnResult()
+                .getResponseBody();
+            if (result.getTotal() == expected) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        assertThat(result.getTotal()).isEqualTo(expected);
+        return result;
+    }
+
+    private MultiValueMap<String, HttpEntity<?>> imagePart(byte[] content, MediaType contentType) {
+        MultipartBodyBuilder multipartBodyBuilder = new MultipartBodyBuilder();
+        multipartBodyBuilder
+            .part("file", new ByteArrayResource(content) {
+                @Override
+                public String getFilename() {
+                    return "image.png";
+                }
+            })
+            .contentType(contentType);
+        return multipartBodyBuilder.build();
+    }
+
+    private String toJson(CatalogueItem item) {
+        try {
+            return objectMapper.writeValueAsString(item);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private JsonNode readJson(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private String replaceSKU(String path) {
@@ -4,9 +4,11 @@ import com.toomuch2learn.reactive.crud.catalogue.CatalogueItemGenerator;
 import com.toomuch2learn.reactive.crud.catalogue.SpringReactiveCrudCatalogueApplication;
 import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEvent;
 import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.test.annotation.DirtiesContext;
@@ -20,6 +22,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,7 +35,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 @Slf4j
 @SpringBootTest(
     classes = SpringReactiveCrudCatalogueApplication.class,
-    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    // Schema migrations retain data, so each context gets its own in-memory database
+    properties = "spring.r2dbc.url=r2dbc:h2:mem:///cataloguedb-${random.uuid}"
 )
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 public class CatalogueWSControllerTest {
@@ -44,6 +49,9 @@ public class CatalogueWSControllerTest {
     @LocalServerPort
     int port;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     public void testCatalogueItemEvent() throws Exception {
 
@@ -68,6 +76,11 @@ public class CatalogueWSControllerTest {
                 .then();
         }).subscribe();
 
+        // Events are only pushed to sessions subscribed when they are published, so wait for the session to subscribe
+        Flux.interval(Duration.ofMillis(50))
+            .filter(i -> meterRegistry.get("catalogue.events.subscribers").gauge().value() > 0)
+            .blockFirst(Duration.ofSeconds(5));
+
         /*
          * Invoke Create API Endpoint as many times as specified in 'count'. This will create the CatalogueItem and then publish
          * message to websocket which will be received by the client used in this test
@@ -85,6 +98,79 @@ public class CatalogueWSControllerTest {
         assertThat(counter.get()).isEqualTo(count);
     }
 
+    /**
+     * Test an event fanned out to many websocket sessions is serialized only once
+     */
+    @Test
+    public void testCatalogueItemEventSerializedOnceForAllSessions() throws Exception {
+
+        int sessions = 3;
+        AtomicLong counter = new AtomicLong();
+
+        URI uri = URI.create("ws://localhost:"+port+ CatalogueControllerAPIPaths.GET_ITEMS_WS_EVENTS);
+        for (int i = 0; i < sessions; i++) {
+            socketClient.execute(uri, (WebSocketSession session) -> {
+                return session
+                    .receive()
+                    .map(WebSocketMessage::getPayloadAsText)
+                    .doOnNext(str -> counter.incrementAndGet())
+                    .then();
+            }).subscribe();
+        }
+
+        Flux.interval(Duration.ofMillis(50))
+            .filter(i -> meterRegistry.get("catalogue.events.subscribers").gauge().value() == sessions)
+            .blockFirst(Duration.ofSeconds(5));
+
+        write(new CatalogueItemEvent(
+            CatalogueItemEvent.CATALOGUEITEM_CREATED, CatalogueItemGenerator.generateCatalogueItem()));
+
+        Thread.sleep(1000);
+
+        assertThat(counter.get()).isEqualTo(sessions);
+        assertThat(meterRegistry.get("catalogue.ws.sessions").gauge().value()).isEqualTo(sessions);
+        assertThat(meterRegistry.get("catalogue.events.encoded").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("catalogue.ws.fanout.latency").timer().count()).isEqualTo(sessions);
+    }
+
+    /**
+     * Test websocket session only receives events matching the filter sent as subscription message
+     */
+    @Test
+    public void testCatalogueItemEventWithSubscriptionFilter() throws Exception {
+
+        AtomicLong counter = new AtomicLong();
+
+        URI uri = URI.create("ws://localhost:"+port+ CatalogueControllerAPIPaths.GET_ITEMS_WS_EVENTS);
+        socketClient.execute(uri, (WebSocketSession session) -> {
+            return session
+                .send(Mono.just(session.textMessage("{\"categories\": [\"Music\"]}")))
+                .thenMany(session.receive())
+                .map(WebSocketMessage::getPayloadAsText)
+                .doOnNext(str -> counter.incrementAndGet())
+                .then();
+        }).subscribe();
+
+        Flux.interval(Duration.ofMillis(50))
+            .filter(i -> meterRegistry.get("catalogue.events.subscribers").gauge().value() > 0)
+            .blockFirst(Duration.ofSeconds(5));
+
+        // Give the session time to receive the subscription message
+        Thread.sleep(500);
+
+        // Generated item is in Books category and is not received
+        write(new CatalogueItemEvent(
+            CatalogueItemEvent.CATALOGUEITEM_CREATED, CatalogueItemGenerator.generateCatalogueItem()));
+
+        CatalogueItem musicItem = CatalogueItemGenerator.generateCatalogueItem("SKU-MUSIC");
+        musicItem.setCategory("Music");
+        write(new CatalogueItemEvent(CatalogueItemEvent.CATALOGUEITEM_CREATED, musicItem));
+
+        Thread.sleep(1000);
+
+        assertThat(counter.get()).isEqualTo(1);
+    }
+
     /**
      * Method to publish Create API request which will publish events to websocket and received in this test class
      *
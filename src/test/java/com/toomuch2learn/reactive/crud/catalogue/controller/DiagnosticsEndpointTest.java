@@ -0,0 +1,95 @@
+package com.toomuch2learn.reactive.crud.catalogue.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.toomuch2learn.reactive.crud.catalogue.CatalogueItemGenerator;
+import com.toomuch2learn.reactive.crud.catalogue.SpringReactiveCrudCatalogueApplication;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class to validate blocking calls and profiled pipelines are reported by the diagnostics endpoint
+ *
+ * @author Madan Narra
+ */
+@SpringBootTest(
+    classes = SpringReactiveCrudCatalogueApplication.class,
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    // Schema migrations retain data, so each context gets its own in-memory database
+    properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///cataloguedb-${random.uuid}",
+        "diagnostics.enabled=true"
+    }
+)
+public class DiagnosticsEndpointTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    public void testDiagnostics() {
+
+        this.client.delete().uri("/actuator/diagnostics").exchange().expectStatus().isNoContent();
+
+        // Workers started before the detector was installed by an earlier context may not be checked
+        Scheduler scheduler = Schedulers.newSingle("diagnostics-test");
+        try {
+            Mono
+                .fromCallable(() -> {
+                    Thread.sleep(10);
+                    return true;
+                })
+                .subscribeOn(scheduler)
+                .block();
+        }
+        finally {
+            scheduler.dispose();
+        }
+
+        CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem();
+        item.setId(null);
+        this.client
+            .post()
+            .uri(CatalogueControllerAPIPaths.BASE_PATH + CatalogueControllerAPIPaths.CREATE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(item)
+            .exchange()
+            .expectStatus().isCreated();
+
+        JsonNode diagnostics = this.client
+            .get()
+            .uri("/actuator/diagnostics")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(JsonNode.class)
+            .returnResult()
+            .getResponseBody();
+
+        List<String> blockingCalls = new ArrayList<>();
+        diagnostics.get("blockingCalls").forEach(call -> blockingCalls.add(
+            call.get("method").asText() + " " + call.get("stackTrace").get(0).asText()));
+        assertThat(blockingCalls)
+            .anyMatch(call -> call.startsWith("java.lang.Thread.sleep")
+                && call.contains(DiagnosticsEndpointTest.class.getName()));
+
+        List<String> operators = new ArrayList<>();
+        diagnostics.get("operators").forEach(operator -> {
+            if (operator.get("operation").asText().equals("CatalogueCrudService.addCatalogItem")) {
+                assertThat(operator.get("count").asLong()).isEqualTo(1);
+                operators.add(operator.get("operator").asText());
+            }
+        });
+        assertThat(operators).isNotEmpty().isSorted();
+    }
+}
@@ -0,0 +1,382 @@
+package com.toomuch2learn.reactive.crud.catalogue.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.toomuch2learn.reactive.crud.catalogue.CatalogueItemGenerator;
+import com.toomuch2learn.reactive.crud.catalogue.SpringReactiveCrudCatalogueApplication;
+import com.toomuch2learn.reactive.crud.catalogue.configuration.CatalogueMediaTypes;
+import com.toomuch2learn.reactive.crud.catalogue.event.CatalogueItemEvent;
+import com.toomuch2learn.reactive.crud.catalogue.model.CatalogueItem;
+import com.toomuch2learn.reactive.crud.catalogue.model.ImportSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.toomuch2learn.reactive.crud.catalogue.controller.CatalogueControllerAPIPaths.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load scenarios driving the Catalogue Item APIs and websocket events of an application started on a random port,
+ * failing when p99 latency or throughput of a scenario regresses past the baseline recorded for the environment it runs
+ * in. Each scenario keeps a number of users sending requests back to back for a warmup and then a measured duration,
+ * extended until a minimum number of operations is measured so p99 latency is not decided by a handful of them. Event
+ * fan-out instead publishes events at a fixed rate, delivering each to every session.
+ *
+ * Scenarios are tagged "load" and excluded from the regular build. Run them with mvn -Pload-test test or
+ * ./gradlew loadTest, tuned with the system properties below. Results are written as described in {@link LoadBaselines}.
+ *
+ * <ul>
+ *     <li>load.users - number of concurrent users, 16 by default</li>
+ *     <li>load.warmup / load.duration - ISO-8601 durations, PT5S and PT20S by default</li>
+ *     <li>load.items - number of items seeded before each scenario, 1000 by default</li>
+ *     <li>load.read-heavy.mix / load.write-heavy.mix - weights of get, create, update and delete operations</li>
+ *     <li>load.bulk-import.batch-size / load.bulk-import.users - items per import and concurrent imports, 100 and 4 by
+ *     default</li>
+ *     <li>load.event-fanout.sessions / load.event-fanout.rate - websocket sessions receiving events and events published
+ *     per second, 50 and 50 by default</li>
+ *     <li>load.min-samples - minimum number of operations measured per scenario, 300 by default</li>
+ *     <li>load.environment - name of the environment baselines are recorded and checked for, the number of available
+ *     processors as in 1-cpu by default</li>
+ *     <li>load.tolerance - fraction by which a result may be worse than its baseline, 0.25 by default</li>
+ *     <li>load.record - true to write results without checking them against baselines</li>
+ * </ul>
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(
+    classes = SpringReactiveCrudCatalogueApplication.class,
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "spring.r2dbc.url=r2dbc:h2:mem:///cataloguedb-${random.uuid}",
+        "file.upload-location=target/uploads",
+        "logging.level.com.toomuch2learn=WARN"
+    }
+)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class CatalogueLoadTest {
+
+    private static final String SEEDED_SKU_PREFIX = "LOAD-";
+
+    private final int users = Integer.getInteger("load.users", 16);
+    private final Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+    private final Duration duration = Duration.parse(System.getProperty("load.duration", "PT20S"));
+    private final int items = Integer.getInteger("load.items", 1000);
+    private final int minSamples = Integer.getInteger("load.min-samples", 300);
+
+    private final AtomicLong skuSequence = new AtomicLong();
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private WebClient webClient;
+    private LoadBaselines baselines;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        webClient = WebClient.create("http://localhost:" + port + BASE_PATH);
+        baselines = new LoadBaselines(
+            Double.parseDouble(System.getProperty("load.tolerance", "0.25")),
+            System.getProperty("load.environment", Runtime.getRuntime().availableProcessors() + "-cpu"));
+
+        // Seeded in batches through the import API, so seeding is not part of the measured operations
+        Flux.fromIterable(CatalogueItemGenerator.generateCatalogueItems(SEEDED_SKU_PREFIX, items, 1L))
+            .buffer(500)
+            .concatMap(this::importItems)
+            .blockLast();
+    }
+
+    /**
+     * Mostly reads of items by SKU with some updates, as served to catalogue browsing
+     */
+    @Test
+    public void testReadHeavy() throws IOException {
+        runRequestMix("read-heavy", System.getProperty("load.read-heavy.mix", "get:90,update:10"));
+    }
+
+    /**
+     * Mostly creates, updates and deletes of items, as during catalogue maintenance
+     */
+    @Test
+    public void testWriteHeavy() throws IOException {
+        runRequestMix("write-heavy", System.getProperty("load.write-heavy.mix", "get:30,create:30,update:30,delete:10"));
+    }
+
+    /**
+     * Imports of NDJSON batches of new items, an operation being the import of a batch
+     */
+    @Test
+    public void testBulkImport() throws IOException {
+        int batchSize = Integer.getInteger("load.bulk-import.batch-size", 100);
+        int importUsers = Integer.getInteger("load.bulk-import.users", 4);
+
+        evaluate(run("bulk-import", importUsers, () -> importItems(
+            Stream.generate(() -> CatalogueItemGenerator.generateCatalogueItem(nextSku(), ThreadLocalRandom.current()))
+                .limit(batchSize)
+                .collect(Collectors.toList()))));
+    }
+
+    /**
+     * Items created while websocket sessions receive the events, an operation being the delivery of an event to a
+     * session and its latency measured from sending the create request
+     */
+    @Test
+    public void testEventFanOut() throws Exception {
+        int sessions = Integer.getInteger("load.event-fanout.sessions", 50);
+        int rate = Integer.getInteger("load.event-fanout.rate", 50);
+        Map<String, Long> sent = new ConcurrentHashMap<>();
+        AtomicReference<LoadRecorder> deliveries = new AtomicReference<>(new LoadRecorder());
+        AtomicLong created = new AtomicLong();
+        AtomicLong connected = new AtomicLong();
+
+        URI uri = URI.create("ws://localhost:" + port + GET_ITEMS_WS_EVENTS);
+        ReactorNettyWebSocketClient socketClient = new ReactorNettyWebSocketClient();
+        List<Disposable> connections = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            connections.add(socketClient
+                .execute(uri, session -> session
+                    .receive()
+                    .doOnSubscribe(subscription -> connected.incrementAndGet())
+                    .map(WebSocketMessage::getPayloadAsText)
+                    .doOnNext(message -> {
+                        Long start = sent.get(createdSku(message));
+                        if (start != null) {
+                            deliveries.get().record(start);
+                        }
+                    })
+                    .then())
+                .subscribe());
+        }
+
+        Supplier<Mono<?>> create = () -> {
+            CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem(nextSku(), ThreadLocalRandom.current());
+            sent.put(item.getSku(), System.nanoTime());
+            return webClient.post().uri(CREATE).bodyValue(item).retrieve().toBodilessEntity()
+                .doOnSuccess(response -> created.incrementAndGet());
+        };
+
+        try {
+            awaitCondition(() -> connected.get() == sessions, Duration.ofSeconds(30));
+            // Sessions subscribe to the event bus right after connecting, so give them time before publishing
+            Thread.sleep(500);
+
+            fanOut(create, rate, warmup, deliveries, created, sessions);
+            evaluate(fanOut(create, rate, duration, deliveries, created, sessions).result("event-fanout", duration));
+        }
+        finally {
+            connections.forEach(Disposable::dispose);
+        }
+    }
+
+    /**
+     * Create items at the rate for the period and wait for their events to be delivered, recording deliveries not made as
+     * errors
+     */
+    private LoadRecorder fanOut(
+        Supplier<Mono<?>> create,
+        int rate,
+        Duration period,
+        AtomicReference<LoadRecorder> deliveries,
+        AtomicLong created,
+        int sessions) throws InterruptedException {
+
+        LoadRecorder recorder = new LoadRecorder();
+        deliveries.set(recorder);
+        created.set(0);
+
+        // Events not published, as their create failed or could not be sent in time, are recorded as errors too
+        long deadline = System.nanoTime() + period.toNanos();
+        Flux.interval(Duration.ofNanos(TimeUnit.SECONDS.toNanos(1) / rate))
+            .takeWhile(tick -> System.nanoTime() < deadline)
+            .onBackpressureDrop(tick -> recorder.error())
+            .flatMap(tick -> create.get().onErrorResume(e -> {
+                log.warn("Load operation failed :: {}", e.getMessage());
+                recorder.error();
+                return Mono.empty();
+            }))
+            .blockLast();
+
+        long expected = created.get() * sessions;
+        awaitCondition(() -> recorder.operations() >= expected, Duration.ofSeconds(10));
+        recorder.errors(Math.max(0, expected - recorder.operations()));
+        return recorder;
+    }
+
+    /**
+     * Run operations picked at random by their weight in the mix, such as "get:90,update:10"
+     */
+    private void runRequestMix(String scenario, String mix) throws IOException {
+        Queue<String> createdSkus = new ConcurrentLinkedQueue<>();
+
+        Map<String, Supplier<Mono<?>>> operations = new LinkedHashMap<>();
+        operations.put("get", () -> webClient
+            .get()
+            .uri(GET_ITEM, randomSeededSku())
+            .retrieve()
+            .toBodilessEntity());
+        operations.put("create", () -> {
+            CatalogueItem item = CatalogueItemGenerator.generateCatalogueItem(nextSku(), ThreadLocalRandom.current());
+            return webClient.post().uri(CREATE).bodyValue(item).retrieve().toBodilessEntity()
+                .doOnSuccess(response -> createdSkus.add(item.getSku()));
+        });
+        operations.put("update", () -> {
+            String sku = randomSeededSku();
+            return webClient
+                .put()
+                .uri(UPDATE, sku)
+                .bodyValue(CatalogueItemGenerator.generateCatalogueItem(sku, ThreadLocalRandom.current()))
+                .retrieve()
+                .toBodilessEntity();
+        });
+        // Only items created by the scenario are deleted, and an item is created instead when there are none yet
+        operations.put("delete", () -> {
+            String sku = createdSkus.poll();
+            return sku == null
+                ? operations.get("create").get()
+                : webClient.delete().uri(DELETE, sku).retrieve().toBodilessEntity();
+        });
+
+        List<Supplier<Mono<?>>> weighted = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.trim().split(":");
+            assertThat(operations).as("Operations of mix %s", mix).containsKey(weight[0]);
+            for (int i = 0; i < Integer.parseInt(weight[1]); i++) {
+                weighted.add(operations.get(weight[0]));
+            }
+        }
+
+        evaluate(run(scenario, users, () -> weighted.get(ThreadLocalRandom.current().nextInt(weighted.size())).get()));
+    }
+
+    /**
+     * Run the operation for the warmup and then measure it for the duration, or until the minimum number of operations
+     * is measured when that takes longer
+     */
+    private LoadResult run(String scenario, int users, Supplier<Mono<?>> operation) {
+        drive(operation, users, warmup, 0, new LoadRecorder());
+
+        LoadRecorder recorder = new LoadRecorder();
+        long start = System.nanoTime();
+        drive(operation, users, duration, minSamples, recorder);
+        return recorder.result(scenario, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Every user runs the operation back to back until the period elapses and the minimum number of operations, failed
+     * ones included, is reached
+     */
+    private void drive(
+        Supplier<Mono<?>> operation, int users, Duration period, long minOperations, LoadRecorder recorder) {
+
+        long deadline = System.nanoTime() + period.toNanos();
+
+        Flux.range(0, users)
+            .flatMap(user -> Mono
+                .defer(() -> {
+                    long start = System.nanoTime();
+                    return operation.get().then().doOnSuccess(v -> recorder.record(start));
+                })
+                .onErrorResume(e -> {
+                    log.warn("Load operation failed :: {}", e.getMessage());
+                    recorder.error();
+                    return Mono.empty();
+                })
+                .repeat(() -> System.nanoTime() < deadline
+                    || recorder.operations() + recorder.errors() < minOperations), users)
+            .blockLast();
+    }
+
+    private void evaluate(LoadResult result) throws IOException {
+        log.info("{}", result);
+        baselines.write(result);
+
+        assertThat(result.getErrors()).as("Failed operations of %s", result.getScenario()).isZero();
+        if (!Boolean.getBoolean("load.record")) {
+            baselines.assertWithinBaseline(result);
+        }
+    }
+
+    private Mono<?> importItems(List<CatalogueItem> catalogueItems) {
+        String content = catalogueItems
+            .stream()
+            .map(item -> {
+                try {
+                    return objectMapper.writeValueAsString(item);
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+            })
+            .collect(Collectors.joining("\n"));
+
+        return webClient
+            .post()
+            .uri(IMPORT)
+            .contentType(CatalogueMediaTypes.APPLICATION_NDJSON)
+            .bodyValue(content)
+            .retrieve()
+            .bodyToMono(ImportSummary.class)
+            .doOnNext(summary -> assertThat(summary.getRejected()).as("Rejected items %s", summary.getErrors()).isZero());
+    }
+
+    private String nextSku() {
+        return "LOAD-N-" + skuSequence.incrementAndGet();
+    }
+
+    private String randomSeededSku() {
+        return SEEDED_SKU_PREFIX + ThreadLocalRandom.current().nextInt(items);
+    }
+
+    /**
+     * SKU of the item of a CREATED event, null for other events
+     */
+    private String createdSku(String message) {
+        try {
+            JsonNode created = objectMapper.readTree(message).get(CatalogueItemEvent.CATALOGUEITEM_CREATED);
+            return created != null && created.has("sku") ? created.get("sku").asText() : null;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitCondition(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.toomuch2learn.reactive.crud.catalogue.load;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Baselines of the load scenarios, recorded in load-baselines.properties as p99 latency in milliseconds and throughput
+ * in operations per second of each scenario, per environment the scenarios run in. A scenario regresses when its p99
+ * latency is higher or its throughput is lower than the baseline of its environment by more than the tolerance, and
+ * scenarios are not checked in environments without baselines.
+ *
+ * Measured results of every run are written in the same format to load-baselines.properties in the results directory,
+ * target/load-results unless set with load.results-dir, along with the baselines of other environments. Baselines are
+ * recorded by copying that file over the one in src/test/resources.
+ *
+ * @author Madan Narra
+ */
+@Slf4j
+class LoadBaselines {
+
+    private static final String BASELINES = "/load-baselines.properties";
+    private static final Path RESULTS
+        = Paths.get(System.getProperty("load.results-dir", "target/load-results"), "load-baselines.properties");
+
+    private final Properties baselines = new Properties();
+    private final double tolerance;
+    private final String environment;
+
+    LoadBaselines(double tolerance, String environment) throws IOException {
+        this.tolerance = tolerance;
+        this.environment = environment;
+        try (InputStream in = LoadBaselines.class.getResourceAsStream(BASELINES)) {
+            if (in != null) {
+                baselines.load(in);
+            }
+        }
+    }
+
+    /**
+     * Fail if the result regressed past the baseline of its scenario. Scenarios without baseline are not checked.
+     *
+     * @param result
+     */
+    void assertWithinBaseline(LoadResult result) {
+        String p99 = baselines.getProperty(key(result, "p99-ms"));
+        String throughput = baselines.getProperty(key(result, "throughput"));
+
+        if (p99 == null || throughput == null) {
+            log.warn("No baseline recorded for load scenario {} in environment {}, result is not checked",
+                result.getScenario(), environment);
+            return;
+        }
+
+        assertThat(result.getP99())
+            .as("p99 latency in ms of %s against baseline %s in %s", result.getScenario(), p99, environment)
+            .isLessThanOrEqualTo(Double.parseDouble(p99) * (1 + tolerance));
+        assertThat(result.getThroughput())
+            .as("Throughput in ops/s of %s against baseline %s in %s", result.getScenario(), throughput, environment)
+            .isGreaterThanOrEqualTo(Double.parseDouble(throughput) * (1 - tolerance));
+    }
+
+    /**
+     * Write the result as the baseline of its scenario in this environment to the results file, keeping results of
+     * other scenarios and baselines of other environments
+     *
+     * @param result
+     */
+    void write(LoadResult result) throws IOException {
+        Properties results = new Properties();
+        results.putAll(baselines);
+        if (Files.exists(RESULTS)) {
+            try (Reader reader = Files.newBufferedReader(RESULTS)) {
+                results.load(reader);
+            }
+        }
+
+        results.setProperty(key(result, "p99-ms"), String.format(Locale.ROOT, "%.2f", result.getP99()));
+        results.setProperty(key(result, "throughput"), String.format(Locale.ROOT, "%.1f", result.getThroughput()));
+
+        Files.createDirectories(RESULTS.getParent());
+        try (Writer writer = Files.newBufferedWriter(RESULTS)) {
+            results.store(writer, "Load scenario results, copy to src/test/resources to record them as baselines");
+        }
+    }
+
+    private String key(LoadResult result, String measure) {
+        return environment + "." + result.getScenario() + "." + measure;
+    }
+}
@@ -0,0 +1,66 @@
+package com.toomuch2learn.reactive.crud.catalogue.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records latency of the operations of a load scenario in microseconds, along with the operations which failed.
+ * Latencies are recorded in a histogram, so percentiles are exact to three significant digits however many operations
+ * are recorded. Safe to record from any number of threads.
+ *
+ * @author Madan Narra
+ */
+class LoadRecorder {
+
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3);
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Record an operation completed successfully
+     *
+     * @param startNanos System.nanoTime() when the operation started
+     */
+    void record(long startNanos) {
+        latencies.recordValue(Math.min(
+            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos), latencies.getHighestTrackableValue()));
+    }
+
+    /**
+     * Record an operation failed
+     */
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Record operations which did not complete
+     *
+     * @param count
+     */
+    void errors(long count) {
+        errors.addAndGet(count);
+    }
+
+    long operations() {
+        return latencies.getTotalCount();
+    }
+
+    long errors() {
+        return errors.get();
+    }
+
+    LoadResult result(String scenario, Duration duration) {
+        return new LoadResult(
+            scenario,
+            latencies.getTotalCount(),
+            errors.get(),
+            latencies.getTotalCount() / (duration.toNanos() / 1e9),
+            latencies.getValueAtPercentile(50) / 1000.0,
+            latencies.getValueAtPercentile(99) / 1000.0,
+            latencies.getMaxValue() / 1000.0);
+    }
+}
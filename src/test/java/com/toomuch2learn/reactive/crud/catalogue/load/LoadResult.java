@@ -0,0 +1,27 @@
+package com.toomuch2learn.reactive.crud.catalogue.load;
+
+import lombok.Value;
+
+/**
+ * Outcome of a load scenario, with throughput in operations per second and latencies in milliseconds
+ *
+ * @author Madan Narra
+ */
+@Value
+class LoadResult {
+
+    String scenario;
+    long operations;
+    long errors;
+    double throughput;
+    double p50;
+    double p99;
+    double max;
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%s: %d operations, %d errors, %.1f ops/s, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+            scenario, operations, errors, throughput, p50, p99, max);
+    }
+}